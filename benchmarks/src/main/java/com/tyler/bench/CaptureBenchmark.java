@@ -0,0 +1,51 @@
+package com.tyler.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 屏幕捕获：有显示器时测 Robot.createScreenCapture，无头环境下用等量的内存拷贝代替。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CaptureBenchmark {
+
+    @Param({"1280x720", "1920x1080", "3840x2160"})
+    public String resolution;
+
+    private Robot robot;
+    private Rectangle bounds;
+    private int[] source;
+
+    @Setup
+    public void setup() throws AWTException {
+        Dimension size = SyntheticScreen.parse(resolution);
+        bounds = new Rectangle(0, 0, size.width, size.height);
+        if (GraphicsEnvironment.isHeadless()) {
+            source = ((DataBufferInt) SyntheticScreen.create(size.width, size.height)
+                    .getRaster().getDataBuffer()).getData();
+        } else {
+            robot = new Robot();
+        }
+    }
+
+    @Benchmark
+    public BufferedImage capture() {
+        if (robot != null) {
+            return robot.createScreenCapture(bounds);
+        }
+        // 与 Robot 一样每次分配新图像并填充像素
+        BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_RGB);
+        int[] target = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        System.arraycopy(source, 0, target, 0, source.length);
+        return image;
+    }
+}
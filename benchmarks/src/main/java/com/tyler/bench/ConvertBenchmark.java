@@ -0,0 +1,39 @@
+package com.tyler.bench;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScreenRecorder 中 BufferedImage 到 Frame 的转换
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConvertBenchmark {
+
+    @Param({"1280x720", "1920x1080", "3840x2160"})
+    public String resolution;
+
+    private BufferedImage image;
+    private Java2DFrameConverter converter;
+
+    @Setup
+    public void setup() {
+        Dimension size = SyntheticScreen.parse(resolution);
+        image = SyntheticScreen.create(size.width, size.height);
+        converter = new Java2DFrameConverter();
+    }
+
+    @Benchmark
+    public Frame toFrame() {
+        return converter.getFrame(image);
+    }
+}
@@ -0,0 +1,85 @@
+package com.tyler.bench;
+
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FFmpegFrameRecorder.record() 在不同 x264 预设和分辨率下的单帧耗时。
+ * 输出为裸 H.264 流并直接丢弃，只测编码本身，不受磁盘影响。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodeBenchmark {
+
+    @Param({"ultrafast", "veryfast", "medium"})
+    public String preset;
+
+    @Param({"1280x720", "1920x1080", "3840x2160"})
+    public String resolution;
+
+    private FFmpegFrameRecorder recorder;
+    private Frame[] frames;
+    private int next = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        Dimension size = SyntheticScreen.parse(resolution);
+        BufferedImage base = SyntheticScreen.create(size.width, size.height);
+
+        // 准备几帧略有变化的画面，避免编码器把所有帧都当成完全静止
+        frames = new Frame[8];
+        for (int i = 0; i < frames.length; i++) {
+            BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = image.createGraphics();
+            g2d.drawImage(base, 0, 0, null);
+            g2d.setColor(Color.RED);
+            g2d.fillRect(i * 40, i * 30, 200, 120);
+            g2d.dispose();
+            // 每个转换器复用自己的 Frame，这里每帧用一个，互不覆盖
+            frames[i] = new Java2DFrameConverter().getFrame(image);
+        }
+
+        recorder = new FFmpegFrameRecorder(new DiscardingOutputStream(), size.width, size.height);
+        recorder.setVideoCodec(avcodec.AV_CODEC_ID_H264);
+        recorder.setFormat("h264");
+        recorder.setFrameRate(20);
+        recorder.setPixelFormat(avutil.AV_PIX_FMT_YUV420P);
+        recorder.setVideoOption("preset", preset);
+        recorder.start();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        recorder.stop();
+        recorder.release();
+    }
+
+    @Benchmark
+    public void record() throws Exception {
+        recorder.record(frames[next]);
+        next = (next + 1) % frames.length;
+    }
+
+    private static class DiscardingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
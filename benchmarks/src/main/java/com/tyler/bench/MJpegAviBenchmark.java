@@ -0,0 +1,53 @@
+package com.tyler.bench;
+
+import com.tyler.recorder3.JavaScreenRecorder;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JavaScreenRecorder 的 JPEG 压缩 + AVI 写入，每次操作写一个 15 帧（1 秒）的文件。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MJpegAviBenchmark {
+    private static final int FRAMES = 15;
+
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    private List<BufferedImage> frames;
+    private File outputFile;
+
+    @Setup
+    public void setup() throws IOException {
+        Dimension size = SyntheticScreen.parse(resolution);
+        BufferedImage image = SyntheticScreen.create(size.width, size.height);
+        frames = new ArrayList<>();
+        for (int i = 0; i < FRAMES; i++) {
+            frames.add(image);
+        }
+        outputFile = File.createTempFile("bench", ".avi");
+    }
+
+    @TearDown
+    public void tearDown() {
+        outputFile.delete();
+    }
+
+    @Benchmark
+    public long writeAvi() throws IOException {
+        JavaScreenRecorder.createMJpegAVI(frames, outputFile);
+        return outputFile.length();
+    }
+}
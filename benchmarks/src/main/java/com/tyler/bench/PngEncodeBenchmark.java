@@ -0,0 +1,77 @@
+package com.tyler.bench;
+
+import com.tyler.core.ParallelPngEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 截图保存路径的 PNG 编码：ImageIO 与多线程编码器在不同线程数下的对比。
+ * threads 参数放在单独的状态里，只有 parallel 使用，imageIO 每种分辨率只运行一次。
+ * 多线程编码器使用 ImageIO 默认的 deflate 级别 4，两者输出大小可比。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PngEncodeBenchmark {
+
+    // 待编码的截图和输出缓冲区，两个基准共用
+    @State(Scope.Thread)
+    public static class Screen {
+        @Param({"1920x1080", "3840x2160", "11520x2160"})
+        public String resolution;
+
+        BufferedImage image;
+        ByteArrayOutputStream output;
+
+        @Setup
+        public void setup() {
+            Dimension size = SyntheticScreen.parse(resolution);
+            image = SyntheticScreen.create(size.width, size.height);
+            output = new ByteArrayOutputStream(size.width * size.height);
+        }
+    }
+
+    // 多线程编码器和它的线程池
+    @State(Scope.Thread)
+    public static class Encoder {
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+
+        ExecutorService executor;
+        ParallelPngEncoder encoder;
+
+        @Setup
+        public void setup() {
+            executor = ParallelPngEncoder.newExecutor(threads);
+            encoder = new ParallelPngEncoder(4, executor);
+        }
+
+        @TearDown
+        public void tearDown() {
+            executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int imageIO(Screen screen) throws IOException {
+        screen.output.reset();
+        ImageIO.write(screen.image, "png", screen.output);
+        return screen.output.size();
+    }
+
+    @Benchmark
+    public int parallel(Screen screen, Encoder encoder) throws IOException {
+        screen.output.reset();
+        encoder.encoder.encode(screen.image, screen.output);
+        return screen.output.size();
+    }
+}
@@ -0,0 +1,98 @@
+package com.tyler.bench;
+
+import com.tyler.screenshot.SelectionRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 截图覆盖层拖动选择框时每一帧的绘制耗时。
+ * full 是原来的整屏重绘，dirty 是缓存变暗背景后只重绘选择框新旧位置的并集。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SelectionOverlayBenchmark {
+
+    private static final int STEP = 7;
+
+    @Param({"1920x1080", "5760x1080", "11520x2160"})
+    public String resolution;
+
+    @Param({"full", "dirty"})
+    public String mode;
+
+    private BufferedImage screenImage;
+    private BufferedImage backBuffer; // 代替 Swing 的后备缓冲区
+    private SelectionRenderer renderer;
+    private Rectangle selection;
+    private int width;
+    private int height;
+    private int frame;
+
+    @Setup
+    public void setup() {
+        Dimension size = SyntheticScreen.parse(resolution);
+        width = size.width;
+        height = size.height;
+        screenImage = SyntheticScreen.create(width, height);
+        backBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        renderer = new SelectionRenderer(new Font(Font.DIALOG, Font.PLAIN, 12));
+        renderer.setScreenImage(screenImage);
+        selection = new Rectangle(width / 4, height / 4, 200, 150);
+        frame = 0;
+
+        // 先完整绘制一帧，缓存的背景在拖动之前就已生成
+        Graphics2D g2d = backBuffer.createGraphics();
+        renderer.paint(g2d, selection);
+        g2d.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage dragFrame() {
+        Rectangle oldDirty = renderer.getDirtyBounds(selection);
+        // 模拟向右下方拖动，到边界后重新开始
+        frame++;
+        int w = 200 + (frame * STEP) % (width / 2);
+        int h = 150 + (frame * STEP) % (height / 2);
+        selection.setSize(w, h);
+
+        Graphics2D g2d = backBuffer.createGraphics();
+        if ("full".equals(mode)) {
+            paintFull(g2d);
+        } else {
+            g2d.clip(oldDirty.union(renderer.getDirtyBounds(selection)));
+            renderer.paint(g2d, selection);
+        }
+        g2d.dispose();
+        return backBuffer;
+    }
+
+    // 原来 SelectionPanel.paintComponent 的绘制方式
+    private void paintFull(Graphics2D g2d) {
+        g2d.drawImage(screenImage, 0, 0, screenImage.getWidth(), screenImage.getHeight(), null);
+
+        g2d.setColor(new Color(0, 0, 0, 100));
+        g2d.fillRect(0, 0, width, selection.y);
+        g2d.fillRect(0, selection.y, selection.x, selection.height);
+        g2d.fillRect(selection.x + selection.width, selection.y,
+                width - selection.x - selection.width, selection.height);
+        g2d.fillRect(0, selection.y + selection.height, width,
+                height - selection.y - selection.height);
+
+        g2d.setColor(Color.RED);
+        g2d.setStroke(new BasicStroke(2));
+        g2d.drawRect(selection.x, selection.y, selection.width, selection.height);
+
+        String sizeInfo = selection.width + " x " + selection.height;
+        g2d.setColor(Color.WHITE);
+        g2d.fillRect(selection.x, selection.y - 20, g2d.getFontMetrics().stringWidth(sizeInfo) + 10, 20);
+        g2d.setColor(Color.BLACK);
+        g2d.drawString(sizeInfo, selection.x + 5, selection.y - 5);
+    }
+}
@@ -0,0 +1,47 @@
+package com.tyler.bench;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * 生成类似桌面内容的测试图像：大面积纯色、窗口、文字和少量渐变。
+ * 随机噪声不能代表屏幕内容的压缩特性，所以不用噪声图。
+ */
+final class SyntheticScreen {
+
+    private SyntheticScreen() {
+    }
+
+    static BufferedImage create(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, new Color(30, 60, 110), width, height, new Color(90, 140, 200)));
+        g2d.fillRect(0, 0, width, height);
+
+        Random random = new Random(42);
+        g2d.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 14));
+        for (int i = 0; i < 12; i++) {
+            int w = width / 4 + random.nextInt(width / 3);
+            int h = height / 4 + random.nextInt(height / 3);
+            int x = random.nextInt(Math.max(1, width - w));
+            int y = random.nextInt(Math.max(1, height - h));
+            g2d.setColor(new Color(240, 240, 240));
+            g2d.fillRect(x, y, w, h);
+            g2d.setColor(new Color(50, 50, 60));
+            g2d.fillRect(x, y, w, 28);
+            g2d.setColor(Color.DARK_GRAY);
+            for (int line = y + 50; line < y + h - 10; line += 18) {
+                g2d.drawString("The quick brown fox jumps over the lazy dog 0123456789", x + 10, line);
+            }
+        }
+        g2d.dispose();
+        return image;
+    }
+
+    // 解析 "1920x1080" 形式的分辨率参数
+    static Dimension parse(String resolution) {
+        String[] parts = resolution.split("x");
+        return new Dimension(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+    }
+}
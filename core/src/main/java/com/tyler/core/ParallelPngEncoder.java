@@ -0,0 +1,422 @@
+package com.tyler.core;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 多线程 PNG 编码器，做法与 pigz 相同：图像按行分块，各块并行做扫描线过滤和 deflate 压缩，
+ * 非最后一块用 SYNC_FLUSH 结束在字节边界上，并以前一块的最后 32KB 作为字典，
+ * 按顺序拼接后就是一个完整的 zlib 流，Adler-32 由各块的校验值合并得到。
+ * 输出为标准 PNG（8 位 RGB，有透明通道时为 RGBA），任何解码器都能读取。
+ */
+public final class ParallelPngEncoder {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int BLOCK_BYTES = 256 * 1024; // 每块大约的未压缩字节数
+    private static final int DICTIONARY_SIZE = 32 * 1024; // deflate 窗口大小
+    private static final int ADLER_BASE = 65521;
+
+    private static volatile ExecutorService sharedExecutor;
+
+    private final int level;
+    private final ExecutorService executor;
+
+    // 使用所有核心共享的线程池
+    public ParallelPngEncoder(int level) {
+        this(level, getSharedExecutor());
+    }
+
+    public ParallelPngEncoder(int level, ExecutorService executor) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("level must be 0-9: " + level);
+        }
+        this.level = level;
+        this.executor = executor;
+    }
+
+    private static ExecutorService getSharedExecutor() {
+        if (sharedExecutor == null) {
+            synchronized (ParallelPngEncoder.class) {
+                if (sharedExecutor == null) {
+                    sharedExecutor = newExecutor(Runtime.getRuntime().availableProcessors());
+                }
+            }
+        }
+        return sharedExecutor;
+    }
+
+    // 编码用的守护线程池，线程数决定并行度
+    public static ExecutorService newExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "png-encoder-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void encode(BufferedImage image, OutputStream out) throws IOException {
+        encode(image, out, percent -> {
+        }, () -> false);
+    }
+
+    /**
+     * 编码并写入 out（不关闭）。每写完一块汇报一次 0-100 的进度，cancelled 返回 true 时停止并返回 false。
+     */
+    public boolean encode(BufferedImage image, OutputStream out, IntConsumer progress,
+                          BooleanSupplier cancelled) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean alpha = image.getColorModel().hasAlpha();
+        int bpp = alpha ? 4 : 3;
+        int rowBytes = width * bpp;
+        int rowsPerBlock = Math.max(1, BLOCK_BYTES / (rowBytes + 1));
+
+        // 所有块一次提交，按顺序等待并写出
+        List<Future<Block>> blocks = new ArrayList<>();
+        for (int y = 0; y < height; y += rowsPerBlock) {
+            int startRow = y;
+            int endRow = Math.min(height, y + rowsPerBlock);
+            blocks.add(executor.submit(() -> compressBlock(image, bpp, startRow, endRow, endRow == height)));
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(SIGNATURE);
+        writeHeader(data, width, height, alpha);
+
+        long adler = 1;
+        boolean first = true;
+        try {
+            for (int i = 0; i < blocks.size(); i++) {
+                if (cancelled.getAsBoolean()) {
+                    return false;
+                }
+                Block block = blocks.get(i).get();
+                adler = combineAdler(adler, block.adler, block.length);
+
+                ByteArrayOutputStream chunk = new ByteArrayOutputStream(block.compressed.length + 6);
+                if (first) {
+                    writeZlibHeader(chunk);
+                    first = false;
+                }
+                chunk.write(block.compressed, 0, block.compressed.length);
+                if (i == blocks.size() - 1) {
+                    chunk.write((int) (adler >>> 24));
+                    chunk.write((int) (adler >>> 16));
+                    chunk.write((int) (adler >>> 8));
+                    chunk.write((int) adler);
+                }
+                writeChunk(data, "IDAT", chunk.toByteArray());
+                progress.accept((i + 1) * 100 / blocks.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("PNG encoding interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("PNG encoding failed", cause);
+        } finally {
+            for (Future<Block> block : blocks) {
+                block.cancel(false);
+            }
+        }
+
+        writeChunk(data, "IEND", new byte[0]);
+        data.flush();
+        return true;
+    }
+
+    // 过滤并压缩 [startRow, endRow) 行
+    private Block compressBlock(BufferedImage image, int bpp, int startRow, int endRow, boolean last) {
+        int width = image.getWidth();
+        int rowBytes = width * bpp;
+        RowFilter filter = new RowFilter(image, bpp);
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (startRow > 0) {
+                // 用前一块末尾过滤后的数据作为字典，压缩率和单线程接近
+                int dictRows = Math.min(startRow, (DICTIONARY_SIZE + rowBytes) / (rowBytes + 1));
+                byte[] dictionary = new byte[dictRows * (rowBytes + 1)];
+                filter.filterRows(startRow - dictRows, startRow, dictionary);
+                int offset = Math.max(0, dictionary.length - DICTIONARY_SIZE);
+                deflater.setDictionary(dictionary, offset, dictionary.length - offset);
+            }
+
+            byte[] filtered = new byte[(endRow - startRow) * (rowBytes + 1)];
+            filter.filterRows(startRow, endRow, filtered);
+            Adler32 adler = new Adler32();
+            adler.update(filtered, 0, filtered.length);
+
+            deflater.setInput(filtered);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(filtered.length / 4 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, n);
+                }
+            } else {
+                // SYNC_FLUSH 让这一块结束在字节边界，可以直接和下一块拼接；输出填满缓冲区说明还没刷完
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return new Block(compressed.toByteArray(), adler.getValue(), filtered.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // 按 zlib 的 adler32_combine 合并两段数据的校验值，len2 为第二段长度
+    static long combineAdler(long adler1, long adler2, long len2) {
+        long rem = len2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xffff) + ((adler2 >>> 16) & 0xffff) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= ((long) ADLER_BASE << 1)) {
+            sum2 -= ((long) ADLER_BASE << 1);
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    private static void writeHeader(DataOutputStream out, int width, int height, boolean alpha) throws IOException {
+        ByteArrayOutputStream ihdr = new ByteArrayOutputStream(13);
+        DataOutputStream d = new DataOutputStream(ihdr);
+        d.writeInt(width);
+        d.writeInt(height);
+        d.writeByte(8);               // 位深
+        d.writeByte(alpha ? 6 : 2);   // 颜色类型：RGBA / RGB
+        d.writeByte(0);               // 压缩方法
+        d.writeByte(0);               // 过滤方法
+        d.writeByte(0);               // 不隔行
+        writeChunk(out, "IHDR", ihdr.toByteArray());
+    }
+
+    private void writeZlibHeader(OutputStream out) throws IOException {
+        int cmf = 0x78; // deflate，32KB 窗口
+        int flevel = level < 2 ? 0 : level < 6 ? 1 : level == 6 ? 2 : 3;
+        int flg = flevel << 6;
+        flg += 31 - ((cmf << 8) + flg) % 31;
+        out.write(cmf);
+        out.write(flg);
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(typeBytes);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static final class Block {
+        final byte[] compressed;
+        final long adler;
+        final int length;
+
+        Block(byte[] compressed, long adler, int length) {
+            this.compressed = compressed;
+            this.adler = adler;
+            this.length = length;
+        }
+    }
+
+    /**
+     * 扫描线过滤：每行分别尝试五种过滤器，选绝对值和最小的（与 libpng 的自适应策略相同）
+     */
+    private static final class RowFilter {
+        private static final int PAETH_CHUNK = 256;
+        private final BufferedImage image;
+        private final int bpp;
+        private final int width;
+        private final boolean intPixels;
+        private final int[] pixels;
+        private byte[] previous;
+        private byte[] current;
+
+        RowFilter(BufferedImage image, int bpp) {
+            this.image = image;
+            this.bpp = bpp;
+            this.width = image.getWidth();
+            int type = image.getType();
+            this.intPixels = type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB;
+            this.pixels = new int[width];
+            this.previous = new byte[width * bpp];
+            this.current = new byte[width * bpp];
+        }
+
+        // 把 [startRow, endRow) 过滤后写入 out，每行前面一个字节是过滤器类型
+        void filterRows(int startRow, int endRow, byte[] out) {
+            if (startRow > 0) {
+                readRow(startRow - 1, previous);
+            } else {
+                Arrays.fill(previous, (byte) 0);
+            }
+            int rowBytes = width * bpp;
+            int offset = 0;
+            for (int y = startRow; y < endRow; y++) {
+                readRow(y, current);
+                int type = chooseFilter();
+                out[offset] = (byte) type;
+                applyFilter(type, out, offset + 1);
+                offset += rowBytes + 1;
+                byte[] t = previous;
+                previous = current;
+                current = t;
+            }
+        }
+
+        // 读取一行像素（不取底层数组，避免图像失去显存加速）
+        private void readRow(int y, byte[] row) {
+            if (intPixels) {
+                image.getRaster().getDataElements(0, y, width, 1, pixels);
+            } else {
+                image.getRGB(0, y, width, 1, pixels, 0, width);
+            }
+            for (int x = 0, i = 0; x < width; x++) {
+                int p = pixels[x];
+                row[i++] = (byte) (p >> 16);
+                row[i++] = (byte) (p >> 8);
+                row[i++] = (byte) p;
+                if (bpp == 4) {
+                    row[i++] = (byte) (p >>> 24);
+                }
+            }
+        }
+
+        // 各过滤器分别用简单循环估算代价，只把选中的那个写入输出。
+        // 最贵的 Paeth 放在最后，累计代价超过当前最优时提前放弃
+        private int chooseFilter() {
+            byte[] cur = current;
+            byte[] prev = previous;
+            int n = cur.length;
+            long sumNone = 0, sumSub = 0, sumUp = 0, sumAvg = 0, sumPaeth = 0;
+            for (int i = 0; i < n; i++) {
+                sumNone += Math.abs(cur[i]);
+                sumUp += Math.abs((byte) (cur[i] - prev[i]));
+            }
+            if (sumUp == 0) {
+                // 与上一行相同，截图中很常见
+                return 2;
+            }
+            for (int i = 0; i < bpp; i++) {
+                sumSub += Math.abs(cur[i]);
+                sumAvg += Math.abs((byte) (cur[i] - ((prev[i] & 0xff) >>> 1)));
+                sumPaeth += Math.abs((byte) (cur[i] - prev[i]));
+            }
+            for (int i = bpp; i < n; i++) {
+                sumSub += Math.abs((byte) (cur[i] - cur[i - bpp]));
+                sumAvg += Math.abs((byte) (cur[i] - (((cur[i - bpp] & 0xff) + (prev[i] & 0xff)) >>> 1)));
+            }
+
+            int best = 0;
+            long bestSum = sumNone;
+            if (sumSub < bestSum) {
+                best = 1;
+                bestSum = sumSub;
+            }
+            if (sumUp < bestSum) {
+                best = 2;
+                bestSum = sumUp;
+            }
+            if (sumAvg < bestSum) {
+                best = 3;
+                bestSum = sumAvg;
+            }
+            for (int start = bpp; start < n && sumPaeth < bestSum; start += PAETH_CHUNK) {
+                int end = Math.min(n, start + PAETH_CHUNK);
+                for (int i = start; i < end; i++) {
+                    int c = cur[i] & 0xff;
+                    sumPaeth += Math.abs((byte) (c - paethPredictor(cur[i - bpp] & 0xff, prev[i] & 0xff, prev[i - bpp] & 0xff)));
+                }
+            }
+            return sumPaeth < bestSum ? 4 : best;
+        }
+
+        private void applyFilter(int type, byte[] out, int offset) {
+            byte[] cur = current;
+            byte[] prev = previous;
+            int n = cur.length;
+            switch (type) {
+                case 0:
+                    System.arraycopy(cur, 0, out, offset, n);
+                    break;
+                case 1:
+                    System.arraycopy(cur, 0, out, offset, bpp);
+                    for (int i = bpp; i < n; i++) {
+                        out[offset + i] = (byte) (cur[i] - cur[i - bpp]);
+                    }
+                    break;
+                case 2:
+                    for (int i = 0; i < n; i++) {
+                        out[offset + i] = (byte) (cur[i] - prev[i]);
+                    }
+                    break;
+                case 3:
+                    for (int i = 0; i < bpp; i++) {
+                        out[offset + i] = (byte) (cur[i] - ((prev[i] & 0xff) >>> 1));
+                    }
+                    for (int i = bpp; i < n; i++) {
+                        out[offset + i] = (byte) (cur[i] - (((cur[i - bpp] & 0xff) + (prev[i] & 0xff)) >>> 1));
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < bpp; i++) {
+                        out[offset + i] = (byte) (cur[i] - prev[i]);
+                    }
+                    for (int i = bpp; i < n; i++) {
+                        out[offset + i] = (byte) (cur[i] - paethPredictor(cur[i - bpp] & 0xff, prev[i] & 0xff, prev[i - bpp] & 0xff));
+                    }
+                    break;
+            }
+        }
+
+        private static int paethPredictor(int a, int b, int c) {
+            int p = a + b - c;
+            int pa = Math.abs(p - a);
+            int pb = Math.abs(p - b);
+            int pc = Math.abs(p - c);
+            if (pa <= pb && pa <= pc) {
+                return a;
+            }
+            return pb <= pc ? b : c;
+        }
+    }
+}
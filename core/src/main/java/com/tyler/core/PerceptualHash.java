@@ -0,0 +1,71 @@
+package com.tyler.core;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * 感知哈希（dHash）：把图像缩成 9x8 的灰度图，每行相邻像素比较亮度得到 64 位。
+ * 缩放、重新压缩和细小改动后哈希基本不变，用汉明距离衡量两张图的相似程度。
+ */
+public final class PerceptualHash {
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+
+    private PerceptualHash() {
+    }
+
+    public static long dHash(BufferedImage image) {
+        double[] gray = downscale(image);
+        long hash = 0;
+        for (int y = 0; y < HASH_HEIGHT; y++) {
+            for (int x = 0; x < HASH_WIDTH - 1; x++) {
+                hash <<= 1;
+                if (gray[y * HASH_WIDTH + x] < gray[y * HASH_WIDTH + x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // 先用逐级减半快速缩小，再对每个格子求亮度平均值，结果与直接区域平均接近
+    private static double[] downscale(BufferedImage image) {
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= HASH_WIDTH * 4 && current.getHeight() / 2 >= HASH_HEIGHT * 4) {
+            int width = current.getWidth() / 2;
+            int height = current.getHeight() / 2;
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = next.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(current, 0, 0, width, height, null);
+            g2d.dispose();
+            current = next;
+        }
+
+        int width = current.getWidth();
+        int height = current.getHeight();
+        double[] sums = new double[HASH_WIDTH * HASH_HEIGHT];
+        int[] counts = new int[HASH_WIDTH * HASH_HEIGHT];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            current.getRGB(0, y, width, 1, row, 0, width);
+            int cy = y * HASH_HEIGHT / height;
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                int cell = cy * HASH_WIDTH + x * HASH_WIDTH / width;
+                sums[cell] += 0.299 * ((rgb >> 16) & 0xff) + 0.587 * ((rgb >> 8) & 0xff) + 0.114 * (rgb & 0xff);
+                counts[cell]++;
+            }
+        }
+        for (int i = 0; i < sums.length; i++) {
+            if (counts[i] > 0) {
+                sums[i] /= counts[i];
+            }
+        }
+        return sums;
+    }
+}
@@ -0,0 +1,40 @@
+package com.tyler.core;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多显示器边界计算，截图和录屏共用
+ */
+public final class ScreenBounds {
+
+    private ScreenBounds() {
+    }
+
+    // 正确计算多显示器组合边界（保留实际起始坐标）
+    public static Rectangle getAdjustedScreenBounds() {
+        GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+        Rectangle bounds = new Rectangle();
+
+        for (GraphicsDevice gd : ge.getScreenDevices()) {
+            for (GraphicsConfiguration config : gd.getConfigurations()) {
+                // 合并所有屏幕边界，保留实际minX、minY（关键）
+                bounds = bounds.union(config.getBounds());
+            }
+        }
+
+        // 直接返回实际组合边界，不强制重置为(0,0)
+        return bounds;
+    }
+
+    // 每个显示器各自的边界，顺序与 getScreenDevices() 一致
+    public static List<Rectangle> getScreenBounds() {
+        GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+        List<Rectangle> result = new ArrayList<>();
+        for (GraphicsDevice gd : ge.getScreenDevices()) {
+            result.add(gd.getDefaultConfiguration().getBounds());
+        }
+        return result;
+    }
+}
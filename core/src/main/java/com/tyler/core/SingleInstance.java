@@ -0,0 +1,259 @@
+package com.tyler.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单实例常驻：第一次启动的进程成为常驻实例，在回环地址上监听，端口和随机令牌写在用户目录下的文件中；
+ * 之后再启动时只读这个文件，把命令发给常驻实例后立即退出，不再创建窗口、加载界面和原生库，
+ * 命令从启动到执行只需要 JVM 本身的启动时间。
+ * 谁成为常驻实例由文件锁决定，同时启动多个也只有一个监听；常驻实例崩溃后锁自动释放，下次启动接替。
+ * 令牌防止本机其他用户的进程连到端口上发命令。-DsingleInstance=false 关闭。
+ * <p>
+ * 常驻实例先占住端口，等界面的创建排进 EDT 之后再调用 {@link #serve} 处理命令，
+ * 这期间连进来的命令在连接队列里等待，不会早于界面创建执行。
+ */
+public final class SingleInstance {
+    private static final int CONNECT_TIMEOUT = 500;
+    private static final int READ_TIMEOUT = 2000;
+    private static final int START_RETRIES = 20; // 另一个进程正在启动时，等它开始监听
+    private static final int MAX_ARGS = 64;
+
+    public enum Result {
+        /** 当前进程成为常驻实例（或单实例已关闭），照常启动 */
+        STARTED,
+        /** 常驻实例已经执行了命令，调用方直接退出 */
+        FORWARDED,
+        /** 常驻实例拒绝了命令或执行失败，调用方以非零状态退出 */
+        FAILED
+    }
+
+    /**
+     * 常驻实例收到的命令。在监听线程上调用，界面操作需要自己转到 EDT。
+     */
+    public interface Handler {
+        /**
+         * @return 认识这个命令时返回 true
+         */
+        boolean handle(String command, List<String> args);
+    }
+
+    // 持有文件锁和监听端口直到进程退出
+    private static FileChannel lockChannel;
+    private static FileLock lock;
+    private static ServerSocket server;
+    private static String serverToken;
+    private static boolean serving;
+
+    private SingleInstance() {
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("singleInstance", "true"));
+    }
+
+    static File getDirectory() {
+        return new File(System.getProperty("singleInstance.dir",
+                new File(System.getProperty("user.home"), ".video-recorder").getPath()));
+    }
+
+    /**
+     * 已有常驻实例时把命令交给它，返回 FORWARDED 或 FAILED，调用方应直接退出；
+     * 否则当前进程占住监听端口并返回 STARTED，调用方照常启动、自己执行这个命令，
+     * 并在界面的创建排进 EDT 之后调用 {@link #serve} 开始处理之后的命令。
+     */
+    public static Result forwardOrListen(String appId, String command, List<String> args) {
+        if (!isEnabled()) {
+            return Result.STARTED;
+        }
+        for (int attempt = 0; attempt < START_RETRIES; attempt++) {
+            String reply = request(appId, command, args);
+            if (reply != null) {
+                if (reply.equals("OK")) {
+                    return Result.FORWARDED;
+                }
+                System.err.println(appId + ": " + reply);
+                return Result.FAILED;
+            }
+            try {
+                if (listen(appId)) {
+                    return Result.STARTED;
+                }
+                // 锁被另一个正在启动的进程持有，稍后它会开始监听
+                Thread.sleep(100);
+            } catch (IOException e) {
+                System.err.println("Single instance disabled: " + e.getMessage());
+                return Result.STARTED;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Result.STARTED;
+            }
+        }
+        System.err.println("Running instance of " + appId + " does not respond, starting a new one");
+        return Result.STARTED;
+    }
+
+    /**
+     * 开始把收到的命令交给 handler。forwardOrListen 返回 STARTED 后调用，没有在监听时什么也不做
+     */
+    public static synchronized void serve(Handler handler) {
+        if (server == null || serving) {
+            return;
+        }
+        serving = true;
+        ServerSocket socket = server;
+        String token = serverToken;
+        Thread thread = new Thread(() -> serve(socket, token, handler), "single-instance");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 把命令发给常驻实例，常驻实例执行成功时返回 true
+     */
+    public static boolean send(String appId, String command, List<String> args) {
+        String reply = request(appId, command, args);
+        if (reply != null && !reply.equals("OK")) {
+            System.err.println(appId + ": " + reply);
+        }
+        return "OK".equals(reply);
+    }
+
+    // 返回常驻实例的回复，没有常驻实例或它没有响应时返回 null
+    private static String request(String appId, String command, List<String> args) {
+        File portFile = new File(getDirectory(), appId + ".port");
+        if (!portFile.isFile()) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(portFile.toPath(), StandardCharsets.UTF_8);
+            if (lines.size() < 2) {
+                return null;
+            }
+            int port = Integer.parseInt(lines.get(0).trim());
+            String token = lines.get(1).trim();
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT);
+                socket.setSoTimeout(READ_TIMEOUT);
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeUTF(token);
+                out.writeUTF(command);
+                out.writeInt(args.size());
+                for (String arg : args) {
+                    out.writeUTF(arg);
+                }
+                out.flush();
+                return new DataInputStream(socket.getInputStream()).readUTF();
+            }
+        } catch (IOException | NumberFormatException e) {
+            // 端口文件是崩溃的实例留下的，或实例正在退出
+            return null;
+        }
+    }
+
+    // 拿到文件锁后占住端口并写端口文件，serve 之前连接只排队不处理；锁被其他进程持有时返回 false
+    private static synchronized boolean listen(String appId) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Already listening");
+        }
+        File dir = getDirectory();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        FileChannel channel = new RandomAccessFile(new File(dir, appId + ".lock"), "rw").getChannel();
+        FileLock fileLock = channel.tryLock();
+        if (fileLock == null) {
+            channel.close();
+            return false;
+        }
+
+        ServerSocket socket = new ServerSocket(0, 16, InetAddress.getLoopbackAddress());
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        StringBuilder token = new StringBuilder();
+        for (byte b : random) {
+            token.append(String.format("%02x", b));
+        }
+        writePortFile(new File(dir, appId + ".port").toPath(), socket.getLocalPort(), token.toString());
+
+        lockChannel = channel;
+        lock = fileLock;
+        server = socket;
+        serverToken = token.toString();
+        return true;
+    }
+
+    // 先写临时文件再改名，客户端不会读到写了一半的内容；文件只有当前用户可读
+    private static void writePortFile(Path file, int port, String token) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        try {
+            Files.createFile(temp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(temp); // Windows 上用户目录本身只有当前用户可访问
+        }
+        Files.write(temp, (port + "\n" + token + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // 命令都很短，逐个连接处理即可
+    private static void serve(ServerSocket socket, String token, Handler handler) {
+        while (!socket.isClosed()) {
+            try (Socket client = socket.accept()) {
+                client.setSoTimeout(READ_TIMEOUT);
+                DataInputStream in = new DataInputStream(client.getInputStream());
+                DataOutputStream out = new DataOutputStream(client.getOutputStream());
+                if (!in.readUTF().equals(token)) {
+                    out.writeUTF("Invalid token");
+                    continue;
+                }
+                String command = in.readUTF();
+                int count = in.readInt();
+                if (count < 0 || count > MAX_ARGS) {
+                    out.writeUTF("Too many arguments");
+                    continue;
+                }
+                List<String> args = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    args.add(in.readUTF());
+                }
+                boolean known;
+                try {
+                    known = handler.handle(command, Collections.unmodifiableList(args));
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    out.writeUTF("Command failed: " + e);
+                    continue;
+                }
+                out.writeUTF(known ? "OK" : "Unknown command: " + command);
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.tyler.core;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 均匀网格空间索引：按边界矩形登记对象，查询某个区域时只访问覆盖到的格子，
+ * 代价与命中数量相关而不是对象总数。截图标注和画板共用。
+ */
+public final class SpatialGrid<T> {
+    private final int cellSize;
+    private final Map<Long, List<Entry<T>>> cells = new HashMap<>();
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+    private int queryStamp = 0; // 查询去重用，跨多个格子的对象只返回一次
+
+    public SpatialGrid(int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("cellSize must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    // 登记对象；已经登记过的对象会先移除旧位置
+    public void insert(T item, Rectangle bounds) {
+        remove(item);
+        Entry<T> entry = new Entry<>(item, new Rectangle(bounds));
+        entries.put(item, entry);
+        forEachCell(entry.bounds, key -> cells.computeIfAbsent(key, k -> new ArrayList<>(4)).add(entry));
+    }
+
+    public boolean remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        forEachCell(entry.bounds, key -> {
+            List<Entry<T>> cell = cells.get(key);
+            if (cell != null) {
+                cell.remove(entry);
+                if (cell.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        });
+        return true;
+    }
+
+    // 登记时的边界，未登记返回 null
+    public Rectangle getBounds(T item) {
+        Entry<T> entry = entries.get(item);
+        return entry != null ? new Rectangle(entry.bounds) : null;
+    }
+
+    // 返回边界与 area 相交（含边界线）的所有对象，顺序不固定
+    public List<T> query(Rectangle area) {
+        List<T> result = new ArrayList<>();
+        int stamp = ++queryStamp;
+        forEachCell(area, key -> {
+            List<Entry<T>> cell = cells.get(key);
+            if (cell == null) {
+                return;
+            }
+            for (Entry<T> entry : cell) {
+                if (entry.stamp != stamp && touches(entry.bounds, area)) {
+                    entry.stamp = stamp;
+                    result.add(entry.item);
+                }
+            }
+        });
+        return result;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        cells.clear();
+        entries.clear();
+    }
+
+    // 与 Rectangle.intersects 不同，宽或高为 0 的矩形（如水平线）也能命中
+    private static boolean touches(Rectangle a, Rectangle b) {
+        return a.x <= b.x + b.width && b.x <= a.x + a.width
+                && a.y <= b.y + b.height && b.y <= a.y + a.height;
+    }
+
+    private void forEachCell(Rectangle bounds, CellVisitor visitor) {
+        int minX = Math.floorDiv(bounds.x, cellSize);
+        int minY = Math.floorDiv(bounds.y, cellSize);
+        int maxX = Math.floorDiv(bounds.x + Math.max(bounds.width, 0), cellSize);
+        int maxY = Math.floorDiv(bounds.y + Math.max(bounds.height, 0), cellSize);
+        for (int cy = minY; cy <= maxY; cy++) {
+            for (int cx = minX; cx <= maxX; cx++) {
+                visitor.visit(((long) cx << 32) | (cy & 0xffffffffL));
+            }
+        }
+    }
+
+    private interface CellVisitor {
+        void visit(long key);
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final Rectangle bounds;
+        int stamp;
+
+        Entry(T item, Rectangle bounds) {
+            this.item = item;
+            this.bounds = bounds;
+        }
+    }
+}
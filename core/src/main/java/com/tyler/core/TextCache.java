@@ -0,0 +1,149 @@
+package com.tyler.core;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 文字绘制缓存：复用 Font 实例，并按字体、文字和渲染上下文缓存排好版的 GlyphVector 和度量，
+ * 重绘时不再查找字体或重新排版。截图标注和画板共用。
+ */
+public final class TextCache {
+    // 没有 Graphics 时（如计算边界）使用的渲染上下文，与 Toolkit 的 FontMetrics 一致
+    public static final FontRenderContext DEFAULT_FRC = new FontRenderContext(null, false, false);
+
+    private static final int MAX_LAYOUTS = 1024;
+
+    private static final Map<FontKey, Font> fonts = new HashMap<>();
+    private static final Map<LayoutKey, TextLayoutInfo> layouts =
+            new LinkedHashMap<LayoutKey, TextLayoutInfo>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<LayoutKey, TextLayoutInfo> eldest) {
+                    return size() > MAX_LAYOUTS;
+                }
+            };
+
+    private TextCache() {
+    }
+
+    public static synchronized Font getFont(String family, int style, int size) {
+        return fonts.computeIfAbsent(new FontKey(family, style, size), k -> new Font(family, style, size));
+    }
+
+    public static TextLayoutInfo getLayout(Font font, String text) {
+        return getLayout(font, text, DEFAULT_FRC);
+    }
+
+    public static synchronized TextLayoutInfo getLayout(Font font, String text, FontRenderContext frc) {
+        return layouts.computeIfAbsent(new LayoutKey(font, text, frc), k -> new TextLayoutInfo(font, text, frc));
+    }
+
+    // 在当前 Graphics 的渲染上下文下绘制，(x, y) 为基线起点，与 drawString 相同
+    public static void drawString(Graphics2D g2d, Font font, String text, float x, float y) {
+        getLayout(font, text, g2d.getFontRenderContext()).draw(g2d, x, y);
+    }
+
+    /**
+     * 排好版的一段文字和它的度量
+     */
+    public static final class TextLayoutInfo {
+        private final GlyphVector glyphs;
+        private final float advance;
+        private final float ascent;
+        private final float descent;
+        private final float leading;
+
+        private TextLayoutInfo(Font font, String text, FontRenderContext frc) {
+            char[] chars = text.toCharArray();
+            // layoutGlyphVector 会做字形替换和复杂文字排版，与 drawString 结果一致
+            this.glyphs = font.layoutGlyphVector(frc, chars, 0, chars.length, Font.LAYOUT_LEFT_TO_RIGHT);
+            LineMetrics metrics = font.getLineMetrics(text, frc);
+            this.advance = (float) glyphs.getLogicalBounds().getWidth();
+            this.ascent = metrics.getAscent();
+            this.descent = metrics.getDescent();
+            this.leading = metrics.getLeading();
+        }
+
+        public void draw(Graphics2D g2d, float x, float y) {
+            g2d.drawGlyphVector(glyphs, x, y);
+        }
+
+        public int getWidth() {
+            return (int) Math.ceil(advance);
+        }
+
+        public int getAscent() {
+            return (int) Math.ceil(ascent);
+        }
+
+        public int getDescent() {
+            return (int) Math.ceil(descent);
+        }
+
+        public int getHeight() {
+            return (int) Math.ceil(ascent + descent + leading);
+        }
+
+        // 基线起点在 (x, y) 时文字占据的逻辑区域
+        public Rectangle getBounds(int x, int y) {
+            return new Rectangle(x, y - getAscent(), getWidth(), getHeight());
+        }
+    }
+
+    private static final class FontKey {
+        private final String family;
+        private final int style;
+        private final int size;
+
+        FontKey(String family, int style, int size) {
+            this.family = family;
+            this.style = style;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FontKey)) {
+                return false;
+            }
+            FontKey other = (FontKey) o;
+            return style == other.style && size == other.size && family.equals(other.family);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(family, style, size);
+        }
+    }
+
+    private static final class LayoutKey {
+        private final Font font;
+        private final String text;
+        private final FontRenderContext frc;
+
+        LayoutKey(Font font, String text, FontRenderContext frc) {
+            this.font = font;
+            this.text = text;
+            this.frc = frc;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LayoutKey)) {
+                return false;
+            }
+            LayoutKey other = (LayoutKey) o;
+            return font.equals(other.font) && text.equals(other.text) && frc.equals(other.frc);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(font, text, frc);
+        }
+    }
+}
@@ -1,34 +1,73 @@
 package com.tyler.screendrawer;
 
+import com.tyler.core.SingleInstance;
+import com.tyler.core.SpatialGrid;
+import com.tyler.core.TextCache;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.font.FontRenderContext;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ScreenDrawer {
 
+    private static final String APP_ID = "screen-drawer";
+    // 常驻实例能执行的命令，不带参数再次启动时默认为 draw
+    private static final List<String> COMMANDS = Arrays.asList("draw", "exit-drawing", "undo", "clear");
+
+    // 文字使用的字体
+    private static final String TEXT_FONT_FAMILY = "Microsoft YaHei";
+    private static final int TEXT_FONT_SIZE = 24;
+    // 文字按抗锯齿、非小数度量排版，与绘制时的渲染上下文一致
+    private static final FontRenderContext TEXT_FRC = new FontRenderContext(null, true, false);
+
+    // 矩形线宽，重绘区域要向外扩出半个线宽和抗锯齿的像素
+    private static final int RECT_STROKE = 3;
+    private static final int STROKE_PADDING = RECT_STROKE / 2 + 2;
+    private static final int TEXT_PADDING = 3;
+    private static final int GRID_CELL_SIZE = 128;
+
+    // -DscreenDrawer.frameStats=true 时统计每次绘制的耗时、重绘面积和绘制的对象数
+    private static final boolean FRAME_STATS = Boolean.getBoolean("screenDrawer.frameStats");
+    private static final int FRAME_STATS_INTERVAL = 100;
+
     // 定义可绘制对象的接口
     interface Drawable {
         void draw(Graphics2D g2d);
+
+        // 绘制时可能触及的区域（含线宽和抗锯齿）；对象创建后不再变化，边界在构造时算好
+        Rectangle getBounds();
     }
 
     // 矩形类实现Drawable
     static class DrawableRectangle implements Drawable {
         Rectangle rect;
         Color color;
+        private final Rectangle bounds;
 
         DrawableRectangle(int x, int y, int width, int height) {
             this.rect = new Rectangle(x, y, width, height);
             this.color = Color.RED;
+            this.bounds = pad(rect, STROKE_PADDING);
         }
 
         @Override
         public void draw(Graphics2D g2d) {
             g2d.setColor(color);
-            g2d.setStroke(new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            g2d.setStroke(new BasicStroke(RECT_STROKE, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
             g2d.drawRect(rect.x, rect.y, rect.width, rect.height);
         }
+
+        @Override
+        public Rectangle getBounds() {
+            return bounds;
+        }
     }
 
     // 文字类实现Drawable
@@ -37,13 +76,20 @@ public class ScreenDrawer {
         Point position;
         Color color;
         Font font;
+        private final Rectangle bounds;
 
         DrawableText(String text, Point position) {
             this.text = text;
             this.position = position;
             this.color = Color.BLUE;
             // 使用支持中文的字体
-            this.font = new Font("Microsoft YaHei", Font.BOLD, 24);
+            this.font = TextCache.getFont(TEXT_FONT_FAMILY, Font.BOLD, TEXT_FONT_SIZE);
+            this.bounds = pad(TextCache.getLayout(font, text, TEXT_FRC).getBounds(position.x, position.y), TEXT_PADDING);
+        }
+
+        @Override
+        public Rectangle getBounds() {
+            return bounds;
         }
 
         @Override
@@ -53,11 +99,23 @@ public class ScreenDrawer {
             // 设置文本抗锯齿
             g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
                     RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-            g2d.drawString(text, position.x, position.y);
+            TextCache.drawString(g2d, font, text, position.x, position.y);
         }
     }
 
+    // 按绘制顺序保存所有对象，网格索引按缓存的边界只取出重绘区域内的对象
     private static final ArrayList<Drawable> drawables = new ArrayList<>();
+    private static final SpatialGrid<Drawable> grid = new SpatialGrid<>(GRID_CELL_SIZE);
+    private static final Map<Drawable, Integer> drawOrder = new IdentityHashMap<>();
+    private static Rectangle previewBounds; // 上次绘制的预览（拖动中的矩形或输入中的文字和光标）所占区域
+    private static JPanel drawingPanel;
+
+    // 绘制统计，只在 EDT 上访问
+    private static int statsFrames = 0;
+    private static long statsNanos = 0;
+    private static long statsMaxNanos = 0;
+    private static long statsArea = 0;
+    private static long statsObjects = 0;
     private static JFrame frame;
     private static boolean drawingMode = false;
     private static boolean textMode = false; // 文字模式标志
@@ -77,6 +135,17 @@ public class ScreenDrawer {
         // 启用窗口透明度支持
         System.setProperty("sun.java2d.uiScale", "1.0");
 
+        // 已经有常驻实例时把命令交给它，不再启动界面
+        String command = args.length > 0 ? args[0] : "draw";
+        List<String> commandArgs = Arrays.asList(args).subList(Math.min(1, args.length), args.length);
+        SingleInstance.Result result = SingleInstance.forwardOrListen(APP_ID, command, commandArgs);
+        if (result == SingleInstance.Result.FORWARDED) {
+            return;
+        }
+        if (result == SingleInstance.Result.FAILED) {
+            System.exit(1);
+        }
+
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -88,6 +157,37 @@ public class ScreenDrawer {
                 JOptionPane.showMessageDialog(null, "Error: " + e.getMessage(), "Screen Drawer Error", JOptionPane.ERROR_MESSAGE);
             }
         });
+        // 界面的创建已经排进 EDT，之后转发来的命令都会在它之后执行
+        SingleInstance.serve((c, a) -> handleCommand(c));
+        // 第一次启动时也执行命令行中给出的命令
+        if (args.length > 0 && !handleCommand(command)) {
+            System.err.println("Unknown command: " + command);
+        }
+    }
+
+    // 命令排在创建窗口之后，在 EDT 上执行
+    private static boolean handleCommand(String command) {
+        if (!COMMANDS.contains(command)) {
+            return false;
+        }
+        SwingUtilities.invokeLater(() -> {
+            switch (command) {
+                case "exit-drawing":
+                    exitDrawingMode();
+                    break;
+                case "undo":
+                    undoLastObject();
+                    break;
+                case "clear":
+                    clearAllObjects();
+                    break;
+                case "draw":
+                default:
+                    enterDrawingMode();
+                    break;
+            }
+        });
+        return true;
     }
 
     private static void setupSystemTray() {
@@ -214,9 +314,10 @@ public class ScreenDrawer {
         frame.setVisible(false);
 
         // 添加绘图面板
-        JPanel drawingPanel = new JPanel() {
+        drawingPanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
+                long start = System.nanoTime();
                 super.paintComponent(g);
                 Graphics2D g2d = (Graphics2D) g.create();
 
@@ -224,8 +325,14 @@ public class ScreenDrawer {
                 g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
                 g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
 
-                // 绘制所有对象
-                for (Drawable drawable : drawables) {
+                // 只绘制与重绘区域相交的对象，保持原来的先后顺序
+                Rectangle clip = g2d.getClipBounds();
+                List<Drawable> visible = drawables;
+                if (clip != null) {
+                    visible = grid.query(clip);
+                    visible.sort((a, b) -> Integer.compare(drawOrder.get(a), drawOrder.get(b)));
+                }
+                for (Drawable drawable : visible) {
                     drawable.draw(g2d);
                 }
 
@@ -238,26 +345,31 @@ public class ScreenDrawer {
 
                     // 绘制矩形边框
                     g2d.setColor(new Color(255, 0, 0, 220));
-                    g2d.setStroke(new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+                    g2d.setStroke(new BasicStroke(RECT_STROKE, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
                     g2d.drawRect(x, y, width, height);
                 }
 
                 // 绘制当前输入的文字
                 if (drawingMode && textMode && textStartPoint != null && currentText.length() > 0) {
+                    Font font = TextCache.getFont(TEXT_FONT_FAMILY, Font.BOLD, TEXT_FONT_SIZE);
                     g2d.setColor(Color.BLUE);
-                    g2d.setFont(new Font("Microsoft YaHei", Font.BOLD, 24));
+                    g2d.setFont(font);
                     g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
                             RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-                    g2d.drawString(currentText.toString(), textStartPoint.x, textStartPoint.y);
+                    TextCache.TextLayoutInfo layout = TextCache.getLayout(font, currentText.toString(),
+                            g2d.getFontRenderContext());
+                    layout.draw(g2d, textStartPoint.x, textStartPoint.y);
 
                     // 绘制光标
-                    FontMetrics fm = g2d.getFontMetrics();
-                    int textWidth = fm.stringWidth(currentText.toString());
+                    int textWidth = layout.getWidth();
                     int cursorX = textStartPoint.x + textWidth;
                     g2d.setColor(Color.BLACK);
                     g2d.drawLine(cursorX, textStartPoint.y - 20, cursorX, textStartPoint.y + 5);
                 }
                 g2d.dispose();
+                if (FRAME_STATS) {
+                    recordFrame(System.nanoTime() - start, clip != null ? clip : getBounds(), visible.size());
+                }
             }
         };
 
@@ -284,6 +396,7 @@ public class ScreenDrawer {
                         // 矩形模式：记录起点
                         startPoint = e.getPoint();
                         currentRectEndPoint = e.getPoint(); // 初始化终点
+                        updatePreview();
                         System.out.println("Mouse pressed at: " + startPoint);
                         frame.requestFocus();
                     }
@@ -301,14 +414,14 @@ public class ScreenDrawer {
                     int height = Math.abs(startPoint.y - currentRectEndPoint.y);
 
                     if (width > 5 && height > 5) {
-                        drawables.add(new DrawableRectangle(x, y, width, height));
+                        addDrawable(new DrawableRectangle(x, y, width, height));
                         System.out.println("Rectangle added: " + drawables.get(drawables.size() - 1));
                         trayIcon.displayMessage("Screen Drawing Tool", "New rectangle added", TrayIcon.MessageType.INFO);
                     }
 
                     startPoint = null;
                     currentRectEndPoint = null;
-                    frame.repaint();
+                    updatePreview();
                 }
             }
         });
@@ -318,7 +431,7 @@ public class ScreenDrawer {
             public void mouseDragged(MouseEvent e) {
                 if (drawingMode && startPoint != null && !textMode) {
                     currentRectEndPoint = e.getPoint();
-                    frame.repaint();
+                    updatePreview();
                 }
             }
         });
@@ -396,7 +509,7 @@ public class ScreenDrawer {
                         if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
                             if (currentText.length() > 0) {
                                 currentText.deleteCharAt(currentText.length() - 1);
-                                frame.repaint();
+                                updatePreview();
                             }
                             e.consume();
                             return;
@@ -413,7 +526,7 @@ public class ScreenDrawer {
                     // 只处理可打印字符（包括中文字符）
                     if (!Character.isISOControl(c)) {
                         currentText.append(c);
-                        frame.repaint();
+                        updatePreview();
                         e.consume();
                     }
                 }
@@ -507,14 +620,14 @@ public class ScreenDrawer {
 
     private static void confirmText() {
         if (textStartPoint != null && currentText.length() > 0) {
-            drawables.add(new DrawableText(currentText.toString(), new Point(textStartPoint.x, textStartPoint.y)));
+            addDrawable(new DrawableText(currentText.toString(), new Point(textStartPoint.x, textStartPoint.y)));
             System.out.println("Text added: '" + currentText + "' at " + textStartPoint);
             trayIcon.displayMessage("Screen Drawing Tool", "Text added: " + currentText, TrayIcon.MessageType.INFO);
 
             // 重置文字输入状态
             currentText.setLength(0);
             textStartPoint = null;
-            frame.repaint();
+            updatePreview();
         }
     }
 
@@ -561,6 +674,7 @@ public class ScreenDrawer {
             currentRectEndPoint = null;
             textStartPoint = null;
             currentText.setLength(0);
+            previewBounds = null; // 窗口重新显示时会整体重绘
             frame.setVisible(false);
             frame.setCursor(Cursor.getDefaultCursor());
             trayIcon.setToolTip("Screen Drawing Tool (Ready)");
@@ -570,9 +684,11 @@ public class ScreenDrawer {
     private static void undoLastObject() {
         if (!drawables.isEmpty()) {
             Drawable removed = drawables.remove(drawables.size() - 1);
+            drawOrder.remove(removed);
+            grid.remove(removed);
             System.out.println("Undo object: " + removed);
             if (drawingMode) {
-                frame.repaint();
+                repaintArea(removed.getBounds());
             }
             trayIcon.displayMessage("Screen Drawing Tool", "Last object removed", TrayIcon.MessageType.INFO);
         } else {
@@ -583,6 +699,8 @@ public class ScreenDrawer {
     private static void clearAllObjects() {
         if (!drawables.isEmpty()) {
             drawables.clear();
+            drawOrder.clear();
+            grid.clear();
             System.out.println("Clear all objects");
             if (drawingMode) {
                 frame.repaint();
@@ -592,4 +710,71 @@ public class ScreenDrawer {
             trayIcon.displayMessage("Screen Drawing Tool", "No objects to clear", TrayIcon.MessageType.INFO);
         }
     }
+
+    private static void addDrawable(Drawable drawable) {
+        drawOrder.put(drawable, drawables.size());
+        drawables.add(drawable);
+        grid.insert(drawable, drawable.getBounds());
+        repaintArea(drawable.getBounds());
+    }
+
+    // 只重绘给定区域：窗口覆盖所有显示器，整窗重绘的代价随屏幕面积和对象数量增长
+    private static void repaintArea(Rectangle area) {
+        if (area != null) {
+            drawingPanel.repaint(area);
+        }
+    }
+
+    // 预览变化后重绘新旧预览区域的并集
+    private static void updatePreview() {
+        Rectangle bounds = computePreviewBounds();
+        Rectangle dirty = previewBounds == null ? bounds : bounds == null ? previewBounds : previewBounds.union(bounds);
+        previewBounds = bounds;
+        repaintArea(dirty);
+    }
+
+    // 当前预览所占区域，与 paintComponent 中预览的绘制对应
+    private static Rectangle computePreviewBounds() {
+        if (!drawingMode) {
+            return null;
+        }
+        if (!textMode && startPoint != null && currentRectEndPoint != null) {
+            Rectangle rect = new Rectangle(Math.min(startPoint.x, currentRectEndPoint.x),
+                    Math.min(startPoint.y, currentRectEndPoint.y),
+                    Math.abs(startPoint.x - currentRectEndPoint.x), Math.abs(startPoint.y - currentRectEndPoint.y));
+            return pad(rect, STROKE_PADDING);
+        }
+        if (textMode && textStartPoint != null && currentText.length() > 0) {
+            Font font = TextCache.getFont(TEXT_FONT_FAMILY, Font.BOLD, TEXT_FONT_SIZE);
+            TextCache.TextLayoutInfo layout = TextCache.getLayout(font, currentText.toString(), TEXT_FRC);
+            Rectangle text = layout.getBounds(textStartPoint.x, textStartPoint.y);
+            // 光标从基线上方 20 像素画到下方 5 像素
+            Rectangle cursor = new Rectangle(textStartPoint.x + layout.getWidth(), textStartPoint.y - 20, 1, 26);
+            return pad(text.union(cursor), TEXT_PADDING);
+        }
+        return null;
+    }
+
+    // 向四周扩出 padding 像素；drawRect 会画到 x + width，所以宽高再加 1
+    private static Rectangle pad(Rectangle rect, int padding) {
+        return new Rectangle(rect.x - padding, rect.y - padding, rect.width + padding * 2 + 1, rect.height + padding * 2 + 1);
+    }
+
+    private static void recordFrame(long nanos, Rectangle area, int objects) {
+        statsFrames++;
+        statsNanos += nanos;
+        statsMaxNanos = Math.max(statsMaxNanos, nanos);
+        statsArea += (long) area.width * area.height;
+        statsObjects += objects;
+        if (statsFrames == FRAME_STATS_INTERVAL) {
+            System.out.println(String.format("绘制耗时: 平均 %.2f ms, 最大 %.2f ms, 平均重绘面积 %d 像素, 平均绘制 %d / %d 个对象 (%d 帧)",
+                    statsNanos / 1e6 / statsFrames, statsMaxNanos / 1e6, statsArea / statsFrames,
+                    statsObjects / statsFrames, drawables.size(), statsFrames));
+            statsFrames = 0;
+            statsNanos = 0;
+            statsMaxNanos = 0;
+            statsArea = 0;
+            statsObjects = 0;
+        }
+    }
 }
\ No newline at end of file
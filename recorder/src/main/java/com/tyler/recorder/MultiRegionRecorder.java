@@ -0,0 +1,278 @@
+package com.tyler.recorder;
+
+import com.tyler.core.ScreenBounds;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多区域录制：一次捕获所有显示器的组合区域，再把每个区域零拷贝裁剪给各自的编码线程。
+ * 每个区域输出一个独立的视频文件。
+ */
+public class MultiRegionRecorder {
+    private static final int FRAME_RATE = 20;
+    private static final int RECORD_TIME = 10; // 录制时间(秒)
+    private static final int POOL_SIZE = 3; // 共享帧缓冲区数量
+    private static final int QUEUE_SIZE = 2; // 每个编码线程最多排队的帧数
+
+    // 小端机器上 TYPE_INT_RGB 的内存布局是 B,G,R,X
+    private static final int PIXEL_FORMAT = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN
+            ? avutil.AV_PIX_FMT_BGRA : avutil.AV_PIX_FMT_ARGB;
+
+    // 一次捕获的整屏像素，所有编码线程共享，引用计数归零后回到缓冲池
+    private class SharedFrame {
+        final ByteBuffer pixels;
+        final AtomicInteger refs = new AtomicInteger();
+        long timestamp;
+
+        SharedFrame(int size) {
+            pixels = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.nativeOrder());
+        }
+
+        void release() {
+            if (refs.decrementAndGet() == 0) {
+                freeFrames.offer(this);
+            }
+        }
+    }
+
+    // 单个区域的编码线程
+    private class RegionEncoder implements Runnable {
+        final Rectangle region; // 相对于组合区域的坐标
+        final String outputFile;
+        final BlockingQueue<SharedFrame> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        final Frame view = new Frame();
+        final Thread thread;
+        volatile Exception error;
+        int droppedFrames = 0;
+
+        RegionEncoder(Rectangle region, String outputFile) {
+            this.region = region;
+            this.outputFile = outputFile;
+            this.thread = new Thread(this, "region-encoder-" + outputFile);
+
+            // 视图帧直接指向共享缓冲区，通过 imageStride 跨过区域外的像素
+            view.imageWidth = region.width;
+            view.imageHeight = region.height;
+            view.imageDepth = Frame.DEPTH_UBYTE;
+            view.imageChannels = 4;
+            view.imageStride = captureBounds.width * 4;
+        }
+
+        @Override
+        public void run() {
+            FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(outputFile, region.width, region.height);
+            recorder.setVideoCodec(avcodec.AV_CODEC_ID_H264);
+            recorder.setFormat("mp4");
+            recorder.setFrameRate(FRAME_RATE);
+            recorder.setPixelFormat(avutil.AV_PIX_FMT_YUV420P);
+            recorder.setVideoOption("preset", "ultrafast");
+            recorder.setVideoBitrate(2000000); // 2 Mbps
+            int offset = (region.y * captureBounds.width + region.x) * 4;
+
+            try {
+                recorder.start();
+                while (true) {
+                    SharedFrame frame = queue.take();
+                    if (frame == stopMarker) {
+                        break;
+                    }
+                    try {
+                        ByteBuffer slice = frame.pixels.duplicate();
+                        ((Buffer) slice).position(offset);
+                        view.image = new Buffer[]{slice.slice()};
+                        if (frame.timestamp > recorder.getTimestamp()) {
+                            recorder.setTimestamp(frame.timestamp);
+                        }
+                        recorder.record(view, PIXEL_FORMAT);
+                    } finally {
+                        frame.release();
+                    }
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                error = e;
+                // 编码失败后继续取帧并释放，避免占住共享缓冲区
+                drainUntilStop();
+            } finally {
+                try {
+                    recorder.stop();
+                    recorder.release();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private void drainUntilStop() {
+            try {
+                SharedFrame frame;
+                while ((frame = queue.take()) != stopMarker) {
+                    frame.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final SharedFrame stopMarker;
+    private final Rectangle captureBounds;
+    private final List<RegionEncoder> encoders = new ArrayList<>();
+    private final BlockingQueue<SharedFrame> freeFrames = new ArrayBlockingQueue<>(POOL_SIZE);
+    private volatile boolean recording = false;
+    private Thread captureThread;
+    private int capturedFrames = 0;
+    private int skippedFrames = 0;
+
+    /**
+     * @param regions     要录制的区域（虚拟桌面坐标），超出屏幕的部分会被裁掉
+     * @param outputFiles 与 regions 一一对应的输出文件
+     */
+    public MultiRegionRecorder(List<Rectangle> regions, List<String> outputFiles) {
+        Rectangle allScreens = ScreenBounds.getAdjustedScreenBounds();
+        Rectangle union = null;
+        List<Rectangle> clipped = new ArrayList<>();
+        for (Rectangle region : regions) {
+            Rectangle r = region.intersection(allScreens);
+            // H.264 的 yuv420p 要求宽高为偶数
+            r.width &= ~1;
+            r.height &= ~1;
+            if (r.width <= 0 || r.height <= 0) {
+                throw new IllegalArgumentException("区域不在任何屏幕内: " + region);
+            }
+            clipped.add(r);
+            union = union == null ? new Rectangle(r) : union.union(r);
+        }
+        // 只捕获所有区域的并集，一次捕获供所有区域共用
+        captureBounds = union;
+
+        for (int i = 0; i < clipped.size(); i++) {
+            Rectangle r = clipped.get(i);
+            r.translate(-captureBounds.x, -captureBounds.y);
+            encoders.add(new RegionEncoder(r, outputFiles.get(i)));
+        }
+
+        stopMarker = new SharedFrame(0);
+        for (int i = 0; i < POOL_SIZE; i++) {
+            freeFrames.offer(new SharedFrame(captureBounds.width * captureBounds.height));
+        }
+    }
+
+    public void start() throws AWTException {
+        Robot robot = new Robot();
+        recording = true;
+        for (RegionEncoder encoder : encoders) {
+            encoder.thread.start();
+        }
+        captureThread = new Thread(() -> captureLoop(robot), "region-capture");
+        captureThread.start();
+    }
+
+    public void stop() throws InterruptedException {
+        recording = false;
+        captureThread.join();
+        for (RegionEncoder encoder : encoders) {
+            encoder.queue.put(stopMarker);
+        }
+        for (RegionEncoder encoder : encoders) {
+            encoder.thread.join();
+        }
+
+        System.out.println("捕获 " + capturedFrames + " 帧，编码器繁忙跳过 " + skippedFrames + " 帧");
+        for (RegionEncoder encoder : encoders) {
+            System.out.println(encoder.outputFile + ": 丢弃 " + encoder.droppedFrames + " 帧"
+                    + (encoder.error != null ? "，编码失败: " + encoder.error.getMessage() : ""));
+        }
+    }
+
+    private void captureLoop(Robot robot) {
+        long frameInterval = TimeUnit.SECONDS.toNanos(1) / FRAME_RATE;
+        long startTime = System.nanoTime();
+        long nextFrameTime = startTime;
+        int[] scratch = null;
+
+        while (recording) {
+            long now = System.nanoTime();
+            if (now < nextFrameTime) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(nextFrameTime - now);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                continue;
+            }
+            nextFrameTime = Math.max(nextFrameTime + frameInterval, now);
+
+            // 所有缓冲区都还在编码中，说明编码跟不上，跳过这一帧
+            SharedFrame frame = freeFrames.poll();
+            if (frame == null) {
+                skippedFrames++;
+                continue;
+            }
+
+            BufferedImage capture = robot.createScreenCapture(captureBounds);
+            int[] data;
+            if (capture.getRaster().getDataBuffer() instanceof DataBufferInt) {
+                data = ((DataBufferInt) capture.getRaster().getDataBuffer()).getData();
+            } else {
+                if (scratch == null) {
+                    scratch = new int[captureBounds.width * captureBounds.height];
+                }
+                data = capture.getRGB(0, 0, captureBounds.width, captureBounds.height, scratch, 0, captureBounds.width);
+            }
+            ((Buffer) frame.pixels).clear();
+            frame.pixels.asIntBuffer().put(data, 0, captureBounds.width * captureBounds.height);
+            frame.timestamp = (now - startTime) / 1000;
+            capturedFrames++;
+
+            frame.refs.set(encoders.size());
+            for (RegionEncoder encoder : encoders) {
+                if (!encoder.queue.offer(frame)) {
+                    encoder.droppedFrames++;
+                    frame.release();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // 默认每个显示器单独录制一个视频，也可以通过参数指定区域：x,y,width,height
+        List<Rectangle> regions = new ArrayList<>();
+        if (args.length > 0) {
+            for (String arg : args) {
+                String[] parts = arg.split(",");
+                regions.add(new Rectangle(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                        Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim())));
+            }
+        } else {
+            regions.addAll(ScreenBounds.getScreenBounds());
+        }
+
+        List<String> outputFiles = new ArrayList<>();
+        for (int i = 0; i < regions.size(); i++) {
+            outputFiles.add("screen_record_" + i + ".mp4");
+        }
+
+        MultiRegionRecorder recorder = new MultiRegionRecorder(regions, outputFiles);
+        recorder.start();
+        Thread.sleep(RECORD_TIME * 1000L);
+        recorder.stop();
+        System.out.println("录制完成! 文件保存至: " + outputFiles);
+    }
+}
@@ -0,0 +1,137 @@
+package com.tyler.recorder;
+
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 录制流水线各阶段的耗时统计：直方图、JFR 事件和 JMX MBean。
+ * <p>
+ * ENCODE 是 FFmpegFrameRecorder.record() 中扣除写文件之后的时间，包含编码和封装（mux）；
+ * 这两步都在 FFmpeg 的同一次调用里完成，无法在 Java 侧分开计时。
+ */
+public class RecorderMetrics implements RecorderMetricsMXBean {
+    private static final String OBJECT_NAME = "com.tyler.recorder:type=RecorderMetrics";
+
+    public enum Stage {
+        CAPTURE, CONVERT, ENCODE, WRITE
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final double targetFps;
+    private volatile long startTime = 0;
+    private volatile long endTime = 0;
+    private volatile long frameCount = 0;
+
+    public RecorderMetrics(double targetFps) {
+        this.targetFps = targetFps;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void start() {
+        startTime = System.nanoTime();
+        endTime = 0;
+    }
+
+    public void stop() {
+        endTime = System.nanoTime();
+    }
+
+    public void frameRecorded() {
+        frameCount++;
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+
+        StageEvent event = new StageEvent();
+        if (event.isEnabled()) {
+            event.stage = stage.name();
+            event.frame = frameCount;
+            event.latency = nanos;
+            event.commit();
+        }
+    }
+
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            System.err.println("无法注册 JMX MBean: " + e.getMessage());
+        }
+    }
+
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (Exception e) {
+            // 没有注册过，忽略
+        }
+    }
+
+    public void printSummary(PrintStream out) {
+        out.println(String.format("%-8s %10s %10s %10s %10s", "阶段", "次数", "p50(ms)", "p99(ms)", "max(ms)"));
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram h = histograms[stage.ordinal()];
+            out.println(String.format("%-8s %10d %10.2f %10.2f %10.2f", stage.name(), h.getCount(),
+                    toMillis(h.getPercentile(50)), toMillis(h.getPercentile(99)), toMillis(h.getMax())));
+        }
+        out.println(String.format("帧率: 实际 %.2f fps / 目标 %.2f fps，共 %d 帧", getAchievedFps(), targetFps, frameCount));
+    }
+
+    @Override
+    public double getTargetFps() {
+        return targetFps;
+    }
+
+    @Override
+    public double getAchievedFps() {
+        long end = endTime != 0 ? endTime : System.nanoTime();
+        long elapsed = end - startTime;
+        if (startTime == 0 || elapsed <= 0) {
+            return 0;
+        }
+        return frameCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    @Override
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public Map<String, Long> getP50Micros() {
+        return percentiles(50);
+    }
+
+    @Override
+    public Map<String, Long> getP99Micros() {
+        return percentiles(99);
+    }
+
+    @Override
+    public Map<String, Long> getMaxMicros() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            result.put(stage.name(), TimeUnit.NANOSECONDS.toMicros(histograms[stage.ordinal()].getMax()));
+        }
+        return result;
+    }
+
+    private Map<String, Long> percentiles(double percentile) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            result.put(stage.name(), TimeUnit.NANOSECONDS.toMicros(histograms[stage.ordinal()].getPercentile(percentile)));
+        }
+        return result;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,20 @@
+package com.tyler.recorder;
+
+import java.util.Map;
+
+/**
+ * 通过 JMX 暴露的录制指标，延迟单位为微秒，Map 的键是阶段名。
+ */
+public interface RecorderMetricsMXBean {
+    double getTargetFps();
+
+    double getAchievedFps();
+
+    long getFrameCount();
+
+    Map<String, Long> getP50Micros();
+
+    Map<String, Long> getP99Micros();
+
+    Map<String, Long> getMaxMicros();
+}
@@ -6,6 +6,7 @@ import org.bytedeco.javacv.Frame;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.File;
 
 public class ScreenRecorder {
     private static final String OUTPUT_FILE = "screen_record.mp4";
@@ -18,9 +19,13 @@ public class ScreenRecorder {
         int width = screenSize.width;
         int height = screenSize.height;
 
-        // 2. 创建FFmpeg录屏器
-        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(
-            OUTPUT_FILE, width, height);
+        // 各阶段耗时统计（JFR 事件 + JMX）
+        RecorderMetrics metrics = new RecorderMetrics(FRAME_RATE);
+        metrics.register();
+
+        // 2. 创建FFmpeg录屏器，写盘通过计时输出流完成
+        TimedFileOutputStream output = new TimedFileOutputStream(new File(OUTPUT_FILE), metrics);
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(output, width, height);
         recorder.setVideoCodec(avcodec.AV_CODEC_ID_H264);
         recorder.setFormat("mp4");
         recorder.setFrameRate(FRAME_RATE);
@@ -30,26 +35,43 @@ public class ScreenRecorder {
             // 3. 开始录制
             recorder.start();
             Robot robot = new Robot();
+            // 直接用 Java2DFrameConverter，Java2DFrameUtils 会额外复制每一帧，而且依赖 OpenCV
+            Java2DFrameConverter converter = new Java2DFrameConverter();
             long startTime = System.currentTimeMillis();
+            metrics.start();
 
             // 4. 录制循环
             while (System.currentTimeMillis() - startTime < RECORD_TIME * 3000) {
                 // 捕获屏幕
+                long t0 = System.nanoTime();
                 BufferedImage screenCapture = robot.createScreenCapture(
                     new Rectangle(0, 0, width, height));
+                long t1 = System.nanoTime();
+                metrics.record(RecorderMetrics.Stage.CAPTURE, t1 - t0);
 
                 // 转换为帧并录制
-                Frame frame = Java2DFrameUtils.toFrame(screenCapture);
+                Frame frame = converter.getFrame(screenCapture);
+                long t2 = System.nanoTime();
+                metrics.record(RecorderMetrics.Stage.CONVERT, t2 - t1);
+
+                long writeBefore = output.getWriteNanos();
                 recorder.record(frame);
+                long t3 = System.nanoTime();
+                metrics.record(RecorderMetrics.Stage.ENCODE, (t3 - t2) - (output.getWriteNanos() - writeBefore));
+                metrics.frameRecorded();
 
                 // 控制帧率
                 Thread.sleep(1000 / FRAME_RATE);
             }
         } finally {
             // 5. 停止录制
+            metrics.stop();
             recorder.stop();
             recorder.release();
+            output.close();
+            metrics.unregister();
             System.out.println("录制完成! 文件保存至: " + OUTPUT_FILE);
+            metrics.printSummary(System.out);
         }
     }
-}
\ No newline at end of file
+}
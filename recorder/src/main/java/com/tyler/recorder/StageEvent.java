@@ -0,0 +1,30 @@
+package com.tyler.recorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * 录制流水线单个阶段的 JFR 事件，在 JDK Mission Control 中按 "Screen Recorder" 分类查看。
+ * 未开启 JFR 录制时 isEnabled() 返回 false，不会产生开销。
+ */
+@Name("com.tyler.recorder.Stage")
+@Label("Recorder Stage")
+@Category("Screen Recorder")
+@Description("Latency of one stage of the screen recording pipeline")
+@StackTrace(false)
+class StageEvent extends Event {
+    @Label("Stage")
+    String stage;
+
+    @Label("Frame")
+    long frame;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+}
@@ -0,0 +1,78 @@
+package com.tyler.recorder;
+
+import org.bytedeco.javacv.Seekable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+/**
+ * 给 FFmpegFrameRecorder 用的可定位输出流，统计每次写盘的耗时（WRITE 阶段）。
+ * mp4 需要在结束时回写文件头，所以必须实现 {@link Seekable}。
+ */
+class TimedFileOutputStream extends OutputStream implements Seekable {
+    private static final int SEEK_SET = 0;
+    private static final int SEEK_CUR = 1;
+    private static final int SEEK_END = 2;
+
+    private final RandomAccessFile file;
+    private final RecorderMetrics metrics;
+    private long writeNanos = 0; // 累计写盘时间，用于从 record() 中扣除
+
+    TimedFileOutputStream(File file, RecorderMetrics metrics) throws IOException {
+        this.file = new RandomAccessFile(file, "rw");
+        this.file.setLength(0);
+        this.metrics = metrics;
+    }
+
+    public long getWriteNanos() {
+        return writeNanos;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        long start = System.nanoTime();
+        file.write(b);
+        finishWrite(start);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        long start = System.nanoTime();
+        file.write(b, off, len);
+        finishWrite(start);
+    }
+
+    private void finishWrite(long start) {
+        long elapsed = System.nanoTime() - start;
+        writeNanos += elapsed;
+        metrics.record(RecorderMetrics.Stage.WRITE, elapsed);
+    }
+
+    @Override
+    public void seek(long offset, int whence) {
+        try {
+            switch (whence) {
+                case SEEK_SET:
+                    file.seek(offset);
+                    break;
+                case SEEK_CUR:
+                    file.seek(file.getFilePointer() + offset);
+                    break;
+                case SEEK_END:
+                    file.seek(file.length() + offset);
+                    break;
+                default:
+                    throw new IllegalArgumentException("不支持的 whence: " + whence);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,427 @@
+package com.tyler.recorder2;
+
+import org.bytedeco.ffmpeg.avcodec.AVPacket;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.Java2DFrameConverter;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 录制服务线程：独占 Robot 和 FFmpegFrameRecorder，界面只投递命令。
+ * 所有回调都通过 {@link SwingUtilities#invokeLater} 回到 EDT，EDT 不会等待任何 I/O 或编码。
+ * <p>
+ * 每段连续录制写成一个独立的分段文件（新编码器，以 IDR 帧开头的封闭 GOP），
+ * 暂停时提前打开下一段的编码器，恢复时直接开始送帧；停止时把所有分段无损拼接（只复制数据包，不重新编码）。
+ */
+class RecordingService {
+
+    // 服务状态
+    enum State {
+        IDLE, RECORDING, PAUSED, FINALIZING
+    }
+
+    // 回调接口，所有方法都在 EDT 上调用
+    interface Listener {
+        void stateChanged(State state);
+
+        void finalizeProgress(int percent, String message);
+
+        void recordingFinished(File outputFile);
+
+        void recordingFailed(String message, Exception e);
+    }
+
+    private enum CommandType {
+        START, PAUSE, RESUME, STOP, SHUTDOWN
+    }
+
+    private static class Command {
+        final CommandType type;
+        final File outputFile;
+
+        Command(CommandType type, File outputFile) {
+            this.type = type;
+            this.outputFile = outputFile;
+        }
+    }
+
+    private final Rectangle screenRect;
+    private final int frameRate;
+    private final Listener listener;
+    private final BlockingQueue<Command> commands = new LinkedBlockingQueue<>();
+    private final Thread serviceThread;
+
+    // 以下字段只在服务线程中访问
+    private State state = State.IDLE;
+    private Robot robot;
+    private Java2DFrameConverter converter;
+    private FFmpegFrameRecorder recorder; // 当前分段
+    private FFmpegFrameRecorder pendingRecorder; // 暂停期间预先打开的下一分段
+    private File pendingSegment;
+    private final List<File> segments = new ArrayList<>();
+    private File segmentDir;
+    private File outputFile;
+    private long segmentStartTime = 0;
+    private long nextFrameTime = 0;
+
+    RecordingService(Rectangle screenRect, int frameRate, Listener listener) {
+        this.screenRect = screenRect;
+        this.frameRate = frameRate;
+        this.listener = listener;
+        this.serviceThread = new Thread(this::runLoop, "recording-service");
+        this.serviceThread.setDaemon(true);
+        this.serviceThread.start();
+    }
+
+    public void start(File outputFile) {
+        commands.offer(new Command(CommandType.START, outputFile));
+    }
+
+    public void pause() {
+        commands.offer(new Command(CommandType.PAUSE, null));
+    }
+
+    public void resume() {
+        commands.offer(new Command(CommandType.RESUME, null));
+    }
+
+    public void stop() {
+        commands.offer(new Command(CommandType.STOP, null));
+    }
+
+    // 结束服务线程，如果还在录制会先完成文件
+    public void shutdown() {
+        commands.offer(new Command(CommandType.SHUTDOWN, null));
+    }
+
+    private void runLoop() {
+        long frameInterval = TimeUnit.SECONDS.toNanos(1) / frameRate;
+        try {
+            while (true) {
+                Command command;
+                if (state == State.RECORDING) {
+                    // 录制中：等待命令的同时控制帧率
+                    long waitTime = nextFrameTime - System.nanoTime();
+                    command = waitTime > 0 ? commands.poll(waitTime, TimeUnit.NANOSECONDS) : commands.poll();
+                } else {
+                    command = commands.take();
+                }
+
+                if (command == null) {
+                    captureFrame();
+                    nextFrameTime += frameInterval;
+                    // 落后太多时直接跳到下一帧，不补帧
+                    if (nextFrameTime < System.nanoTime()) {
+                        nextFrameTime = System.nanoTime() + frameInterval;
+                    }
+                    continue;
+                }
+
+                if (command.type == CommandType.SHUTDOWN) {
+                    if (state != State.IDLE) {
+                        finishRecording();
+                    }
+                    return;
+                }
+                handle(command);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(Command command) {
+        switch (command.type) {
+            case START:
+                if (state == State.IDLE) {
+                    beginRecording(command.outputFile);
+                }
+                break;
+            case PAUSE:
+                if (state == State.RECORDING) {
+                    pauseRecording();
+                }
+                break;
+            case RESUME:
+                if (state == State.PAUSED) {
+                    resumeRecording();
+                }
+                break;
+            case STOP:
+                if (state == State.RECORDING || state == State.PAUSED) {
+                    finishRecording();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void beginRecording(File file) {
+        try {
+            if (robot == null) {
+                robot = new Robot();
+                converter = new Java2DFrameConverter();
+            }
+
+            outputFile = file;
+            segments.clear();
+            segmentDir = Files.createTempDirectory("recording-").toFile();
+            openPendingSegment();
+            resumeRecording();
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("无法开始录制: " + e.getMessage() + salvageSegments(true), e);
+        }
+    }
+
+    // 关闭当前分段，并立即为恢复录制准备好下一段的编码器
+    private void pauseRecording() {
+        try {
+            closeSegment();
+            openPendingSegment();
+            setState(State.PAUSED);
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("暂停录制失败: " + e.getMessage() + salvageSegments(true), e);
+        }
+    }
+
+    // 切换到已经打开的分段，不需要等待编码器初始化
+    private void resumeRecording() {
+        recorder = pendingRecorder;
+        segments.add(pendingSegment);
+        pendingRecorder = null;
+        pendingSegment = null;
+        segmentStartTime = System.nanoTime();
+        nextFrameTime = segmentStartTime;
+        setState(State.RECORDING);
+    }
+
+    private void openPendingSegment() throws Exception {
+        pendingSegment = new File(segmentDir, String.format("segment_%03d.mp4", segments.size()));
+        pendingRecorder = new FFmpegFrameRecorder(pendingSegment, screenRect.width, screenRect.height);
+        pendingRecorder.setVideoCodec(avcodec.AV_CODEC_ID_H264);
+        pendingRecorder.setFormat("mp4");
+        pendingRecorder.setFrameRate(frameRate);
+        pendingRecorder.setPixelFormat(avutil.AV_PIX_FMT_YUV420P);
+        pendingRecorder.setVideoOption("preset", "ultrafast");
+        pendingRecorder.setVideoOption("tune", "zerolatency");
+        pendingRecorder.start();
+    }
+
+    private void closeSegment() throws Exception {
+        recorder.flush();
+        recorder.stop();
+        recorder.release();
+        recorder = null;
+    }
+
+    private void captureFrame() {
+        try {
+            // 捕获屏幕
+            BufferedImage image = robot.createScreenCapture(screenRect);
+
+            // 转换为Frame并录制
+            // 时间戳从当前分段开始计算，分段之间没有空洞
+            Frame frame = converter.convert(image);
+            long timestamp = (System.nanoTime() - segmentStartTime) / 1000;
+            if (timestamp > recorder.getTimestamp()) {
+                recorder.setTimestamp(timestamp);
+            }
+            recorder.record(frame);
+        } catch (Exception e) {
+            e.printStackTrace();
+            fail("录制过程中发生错误: " + e.getMessage() + salvageSegments(true), e);
+        }
+    }
+
+    // 完成文件：关闭最后一段、拼接所有分段，并把进度报告给界面
+    private void finishRecording() {
+        setState(State.FINALIZING);
+        try {
+            if (recorder != null) {
+                progress(5, "正在刷新编码器...");
+                closeSegment();
+            }
+            discardPendingSegment();
+
+            if (segments.size() == 1) {
+                progress(50, "正在写入文件...");
+                Files.move(segments.get(0).toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                stitchSegments();
+            }
+            deleteSegments();
+            segmentDir = null;
+
+            progress(100, "完成");
+            File finished = outputFile;
+            setState(State.IDLE);
+            SwingUtilities.invokeLater(() -> listener.recordingFinished(finished));
+        } catch (Exception e) {
+            e.printStackTrace();
+            // 可能正是拼接失败，不再重试，保留分段
+            fail("保存录制文件失败: " + e.getMessage() + salvageSegments(false), e);
+        }
+    }
+
+    // 按顺序复制每个分段的数据包，并把时间戳平移到上一段结束的位置
+    private void stitchSegments() throws Exception {
+        FFmpegFrameGrabber first = new FFmpegFrameGrabber(segments.get(0));
+        first.start();
+        FFmpegFrameRecorder muxer = new FFmpegFrameRecorder(outputFile, first.getImageWidth(), first.getImageHeight());
+        boolean completed = false;
+        try {
+            muxer.setFormat("mp4");
+            muxer.setVideoCodec(first.getVideoCodec());
+            muxer.setFrameRate(first.getFrameRate());
+            muxer.start(first.getFormatContext());
+
+            long offset = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                progress(10 + 85 * i / segments.size(), "正在拼接分段 " + (i + 1) + "/" + segments.size() + "...");
+                FFmpegFrameGrabber grabber = first;
+                if (i > 0) {
+                    grabber = new FFmpegFrameGrabber(segments.get(i));
+                    grabber.start();
+                }
+                try {
+                    long segmentEnd = offset;
+                    AVPacket packet;
+                    while ((packet = grabber.grabPacket()) != null) {
+                        long end = packet.pts() + Math.max(packet.duration(), 1);
+                        packet.pts(packet.pts() + offset);
+                        packet.dts(packet.dts() + offset);
+                        segmentEnd = Math.max(segmentEnd, end + offset);
+                        muxer.recordPacket(packet);
+                    }
+                    offset = segmentEnd;
+                } finally {
+                    if (grabber != first) {
+                        grabber.stop();
+                        grabber.release();
+                    }
+                }
+            }
+            muxer.stop();
+            completed = true;
+        } finally {
+            muxer.release();
+            first.stop();
+            first.release();
+            if (!completed) {
+                // 拼接中断的输出文件无法播放，分段还在，删除它
+                Files.deleteIfExists(outputFile.toPath());
+            }
+        }
+    }
+
+    private void discardPendingSegment() throws Exception {
+        if (pendingRecorder != null) {
+            pendingRecorder.stop();
+            pendingRecorder.release();
+            pendingRecorder = null;
+            Files.deleteIfExists(pendingSegment.toPath());
+            pendingSegment = null;
+        }
+    }
+
+    private void deleteSegments() throws IOException {
+        for (File segment : segments) {
+            Files.deleteIfExists(segment.toPath());
+        }
+        segments.clear();
+        if (segmentDir != null) {
+            Files.deleteIfExists(segmentDir.toPath());
+        }
+    }
+
+    /**
+     * 录制出错后尽量保住已经录好的内容：当前分段能正常结束就保留，否则丢弃；
+     * 剩下的分段写到输出文件（stitch 为 false 时多个分段不再拼接），写不出来就保留分段目录。
+     * 完成后释放所有编码器并清空分段状态，返回附加到错误信息中的说明。
+     */
+    private String salvageSegments(boolean stitch) {
+        setState(State.FINALIZING);
+        if (recorder != null) {
+            try {
+                closeSegment();
+            } catch (Exception e) {
+                // 没有正常结束的分段文件不完整，无法播放
+                releaseQuietly();
+                segments.remove(segments.size() - 1).delete();
+            }
+        }
+        releaseQuietly();
+        if (pendingSegment != null) {
+            pendingSegment.delete();
+            pendingSegment = null;
+        }
+
+        String note = "";
+        if (segments.size() > 1 && !stitch) {
+            note = "\n已录制的分段保留在: " + segmentDir.getAbsolutePath();
+        } else {
+            try {
+                if (segments.size() == 1) {
+                    Files.move(segments.get(0).toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    note = "\n已录制的部分保存到: " + outputFile.getAbsolutePath();
+                } else if (segments.size() > 1) {
+                    stitchSegments();
+                    note = "\n已录制的部分保存到: " + outputFile.getAbsolutePath();
+                }
+                deleteSegments();
+            } catch (Exception e) {
+                e.printStackTrace();
+                note = "\n已录制的分段保留在: " + segmentDir.getAbsolutePath();
+            }
+        }
+        segments.clear();
+        segmentDir = null;
+        return note;
+    }
+
+    private void releaseQuietly() {
+        for (FFmpegFrameRecorder r : new FFmpegFrameRecorder[]{recorder, pendingRecorder}) {
+            if (r != null) {
+                try {
+                    r.release();
+                } catch (Exception ignored) {
+                    // 已经在报告原始错误，这里忽略
+                }
+            }
+        }
+        recorder = null;
+        pendingRecorder = null;
+    }
+
+    private void fail(String message, Exception e) {
+        setState(State.IDLE);
+        SwingUtilities.invokeLater(() -> listener.recordingFailed(message, e));
+    }
+
+    private void progress(int percent, String message) {
+        SwingUtilities.invokeLater(() -> listener.finalizeProgress(percent, message));
+    }
+
+    private void setState(State newState) {
+        state = newState;
+        SwingUtilities.invokeLater(() -> listener.stateChanged(newState));
+    }
+}
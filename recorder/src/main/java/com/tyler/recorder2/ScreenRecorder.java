@@ -0,0 +1,240 @@
+package com.tyler.recorder2;
+
+import com.tyler.core.SingleInstance;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class ScreenRecorder {
+    private static final int FRAME_RATE = 20;
+    private static final String APP_ID = "screen-recorder";
+    // 常驻实例能执行的命令，不带参数再次启动时默认为 record（开始或停止录制）
+    private static final List<String> COMMANDS = Arrays.asList("record", "pause", "show");
+
+    private static ScreenRecorder instance; // 只在 EDT 上访问
+
+    private JFrame frame;
+    private JButton startButton, stopButton, pauseButton;
+    private JLabel statusLabel;
+    private JProgressBar progressBar;
+    private RecordingService service;
+    private RecordingService.State state = RecordingService.State.IDLE;
+    private boolean closeAfterStop = false;
+    private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd_HHmmss");
+
+    public ScreenRecorder() {
+        Rectangle screenRect = new Rectangle(Toolkit.getDefaultToolkit().getScreenSize());
+        service = new RecordingService(screenRect, FRAME_RATE, new RecordingService.Listener() {
+            @Override
+            public void stateChanged(RecordingService.State newState) {
+                updateUI(newState);
+            }
+
+            @Override
+            public void finalizeProgress(int percent, String message) {
+                progressBar.setValue(percent);
+                progressBar.setString(message);
+            }
+
+            @Override
+            public void recordingFinished(File outputFile) {
+                onRecordingFinished(outputFile);
+            }
+
+            @Override
+            public void recordingFailed(String message, Exception e) {
+                JOptionPane.showMessageDialog(frame, message, "错误", JOptionPane.ERROR_MESSAGE);
+                if (closeAfterStop) {
+                    closeWindow();
+                }
+            }
+        });
+        initUI();
+    }
+
+    private void initUI() {
+        frame = new JFrame("屏幕录制软件");
+        frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (state == RecordingService.State.IDLE) {
+                    closeWindow();
+                } else if (state != RecordingService.State.FINALIZING) {
+                    int result = JOptionPane.showConfirmDialog(frame, "正在录制中，是否停止录制并退出?", "确认退出", JOptionPane.YES_NO_OPTION);
+                    if (result == JOptionPane.YES_OPTION) {
+                        // 等文件完成后再关闭窗口
+                        closeAfterStop = true;
+                        service.stop();
+                    }
+                } else {
+                    closeAfterStop = true;
+                }
+            }
+        });
+
+        startButton = new JButton("开始录制");
+        stopButton = new JButton("停止录制");
+        pauseButton = new JButton("暂停录制");
+        statusLabel = new JLabel("准备就绪");
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+
+        stopButton.setEnabled(false);
+        pauseButton.setEnabled(false);
+
+        startButton.addActionListener(e -> startRecording());
+        stopButton.addActionListener(e -> service.stop());
+        pauseButton.addActionListener(e -> {
+            if (state == RecordingService.State.PAUSED) {
+                service.resume();
+            } else {
+                service.pause();
+            }
+        });
+
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(startButton);
+        buttonPanel.add(stopButton);
+        buttonPanel.add(pauseButton);
+
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(statusLabel, BorderLayout.NORTH);
+        statusPanel.add(progressBar, BorderLayout.SOUTH);
+
+        frame.getContentPane().add(buttonPanel, BorderLayout.CENTER);
+        frame.getContentPane().add(statusPanel, BorderLayout.SOUTH);
+
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+    }
+
+    private void startRecording() {
+        // 先禁用按钮，等服务线程确认状态后再更新界面
+        startButton.setEnabled(false);
+        statusLabel.setText("正在启动...");
+        service.start(new File("ScreenRecording_" + dateFormat.format(new Date()) + ".mp4"));
+    }
+
+    // 执行单实例转发来的命令
+    private void runCommand(String command) {
+        switch (command) {
+            case "record":
+                if (state == RecordingService.State.IDLE) {
+                    startRecording();
+                } else if (state != RecordingService.State.FINALIZING) {
+                    service.stop();
+                }
+                break;
+            case "pause":
+                if (state == RecordingService.State.PAUSED) {
+                    service.resume();
+                } else if (state == RecordingService.State.RECORDING) {
+                    service.pause();
+                }
+                break;
+            case "show":
+            default:
+                frame.setVisible(true);
+                frame.setExtendedState(JFrame.NORMAL);
+                frame.toFront();
+                break;
+        }
+    }
+
+    private void updateUI(RecordingService.State newState) {
+        state = newState;
+        switch (newState) {
+            case RECORDING:
+                startButton.setEnabled(false);
+                stopButton.setEnabled(true);
+                pauseButton.setEnabled(true);
+                pauseButton.setText("暂停录制");
+                statusLabel.setText("正在录制...");
+                progressBar.setVisible(false);
+                break;
+            case PAUSED:
+                pauseButton.setText("继续录制");
+                statusLabel.setText("已暂停");
+                break;
+            case FINALIZING:
+                startButton.setEnabled(false);
+                stopButton.setEnabled(false);
+                pauseButton.setEnabled(false);
+                statusLabel.setText("正在保存文件...");
+                progressBar.setValue(0);
+                progressBar.setString("");
+                progressBar.setVisible(true);
+                break;
+            case IDLE:
+            default:
+                startButton.setEnabled(true);
+                stopButton.setEnabled(false);
+                pauseButton.setEnabled(false);
+                pauseButton.setText("暂停录制");
+                statusLabel.setText("准备就绪");
+                progressBar.setVisible(false);
+                break;
+        }
+        frame.pack();
+    }
+
+    private void onRecordingFinished(File outputFile) {
+        if (outputFile.exists()) {
+            JOptionPane.showMessageDialog(frame, "录制完成\n文件保存至: " + outputFile.getAbsolutePath(), "录制完成", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(frame, "录制失败，未生成视频文件", "错误", JOptionPane.ERROR_MESSAGE);
+        }
+        if (closeAfterStop) {
+            closeWindow();
+        }
+    }
+
+    private void closeWindow() {
+        service.shutdown();
+        frame.dispose();
+    }
+
+    public static void main(String[] args) {
+        // 已经有常驻实例时把命令交给它，不用再加载 JavaCV
+        String command = args.length > 0 ? args[0] : "record";
+        List<String> commandArgs = Arrays.asList(args).subList(Math.min(1, args.length), args.length);
+        SingleInstance.Result result = SingleInstance.forwardOrListen(APP_ID, command, commandArgs);
+        if (result == SingleInstance.Result.FORWARDED) {
+            return;
+        }
+        if (result == SingleInstance.Result.FAILED) {
+            System.exit(1);
+        }
+
+        // 确保JavaCV库正确加载
+        System.setProperty("org.bytedeco.javacpp.maxphysicalbytes", "0");
+        System.setProperty("org.bytedeco.javacpp.maxbytes", "0");
+
+        SwingUtilities.invokeLater(() -> instance = new ScreenRecorder());
+        // 界面的创建已经排进 EDT，之后转发来的命令都会在它之后执行
+        SingleInstance.serve((c, a) -> handleCommand(c));
+        // 第一次启动时也执行命令行中给出的命令
+        if (args.length > 0 && !handleCommand(command)) {
+            System.err.println("Unknown command: " + command);
+        }
+    }
+
+    // 命令排在创建窗口之后，在 EDT 上执行
+    private static boolean handleCommand(String command) {
+        if (!COMMANDS.contains(command)) {
+            return false;
+        }
+        SwingUtilities.invokeLater(() -> instance.runCommand(command));
+        return true;
+    }
+}
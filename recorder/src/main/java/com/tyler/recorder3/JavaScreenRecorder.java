@@ -1,5 +1,7 @@
 package com.tyler.recorder3;
 
+import com.tyler.core.ParallelPngEncoder;
+
 import javax.imageio.ImageIO;
 import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageOutputStream;
@@ -38,9 +40,14 @@ public class JavaScreenRecorder {
 
             // 将帧序列转换为视频
             System.out.println("开始生成视频文件...");
-            createMJpegAVI(frames);
+            createMJpegAVI(frames, new File(OUTPUT_VIDEO));
             System.out.println("视频生成完成: " + OUTPUT_VIDEO);
 
+            // -Drecorder.pngFrames=true 时另外导出无损的 PNG 帧序列
+            if (Boolean.getBoolean("recorder.pngFrames")) {
+                exportPngFrames(frames, outputDir);
+            }
+
         } catch (AWTException e) {
             System.err.println("无法创建Robot对象: " + e.getMessage());
         } catch (IOException e) {
@@ -87,10 +94,26 @@ public class JavaScreenRecorder {
         return frames;
     }
 
+    /**
+     * 把帧序列导出为 PNG 文件，每帧用多线程编码器压缩
+     */
+    public static void exportPngFrames(List<BufferedImage> frames, File outputDir) throws IOException {
+        ParallelPngEncoder encoder = new ParallelPngEncoder(4);
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < frames.size(); i++) {
+            File file = new File(outputDir, String.format("frame_%05d.png", i));
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                encoder.encode(frames.get(i), out);
+            }
+        }
+        System.out.println("导出PNG帧序列: " + frames.size() + " 帧, 耗时 "
+                + (System.currentTimeMillis() - startTime) + "ms, 目录 " + outputDir.getPath());
+    }
+
     /**
      * 创建MJPEG格式的AVI文件
      */
-    private static void createMJpegAVI(List<BufferedImage> frames) throws IOException {
+    public static void createMJpegAVI(List<BufferedImage> frames, File outputFile) throws IOException {
         if (frames.isEmpty()) {
             return;
         }
@@ -102,7 +125,7 @@ public class JavaScreenRecorder {
 
         System.out.println("创建MJPEG AVI: " + width + "x" + height + " @" + FPS + "fps");
 
-        try (FileOutputStream fos = new FileOutputStream(OUTPUT_VIDEO);
+        try (FileOutputStream fos = new FileOutputStream(outputFile);
              DataOutputStream dos = new DataOutputStream(fos)) {
 
             // 1. 写入AVI文件头
@@ -149,7 +172,7 @@ public class JavaScreenRecorder {
             dos.write(indexBuffer.toByteArray());
 
             // 4. 更新文件大小信息
-            updateFileSizes(dos, moviListSizePos);
+            updateFileSizes(dos, moviListSizePos, outputFile);
         }
     }
 
@@ -228,11 +251,11 @@ public class JavaScreenRecorder {
     /**
      * 更新文件大小信息
      */
-    private static void updateFileSizes(DataOutputStream dos, int moviListSizePos) throws IOException {
+    private static void updateFileSizes(DataOutputStream dos, int moviListSizePos, File outputFile) throws IOException {
         // 获取当前文件大小
         int fileSize = dos.size();
 
-        try (RandomAccessFile raf = new RandomAccessFile(OUTPUT_VIDEO, "rw")) {
+        try (RandomAccessFile raf = new RandomAccessFile(outputFile, "rw")) {
             // 更新RIFF块大小（总文件大小 - 8）
             raf.seek(4);
             raf.writeInt(fileSize - 8);
@@ -0,0 +1,297 @@
+package com.tyler.screenshot;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 命令行批量截图：java -jar ScreenshotTool.jar capture [选项]
+ * 不创建任何 Swing 组件（没有主窗口、托盘和覆盖层），只用 Robot 捕获，编码和写文件在后台线程池中进行，
+ * 下一次捕获不用等上一张写完。每张截图写完后在标准输出打印一行：捕获时间、捕获耗时、文件路径。
+ * 可以在 Xvfb 等虚拟显示服务器下运行（需要设置 DISPLAY）。
+ */
+class CaptureCommand {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: capture [options]",
+            "  --region X,Y,W,H     capture a screen region (repeatable)",
+            "  --monitor N|all      capture monitor N (0-based) or all monitors combined (repeatable)",
+            "  --count N            number of captures, 0 = until killed (default 1)",
+            "  --interval MS        milliseconds between captures (default 1000)",
+            "  --format png|jpeg    output format (default png)",
+            "  --level 0-9          PNG compression level (default " + ImageExporter.DEFAULT_PNG_LEVEL + ")",
+            "  --quality 0-1        JPEG quality (default " + ImageExporter.DEFAULT_JPEG_QUALITY + ")",
+            "  --out DIR            output directory (default .)",
+            "  --prefix NAME        file name prefix (default capture)",
+            "Without --region or --monitor all monitors are captured as one image.",
+            "Output: one line per file: <capture time ISO-8601> <capture ms> <path>");
+
+    private final List<Target> targets = new ArrayList<>();
+    private int count = 1;
+    private long interval = 1000;
+    private ImageExporter.Format format = ImageExporter.Format.PNG;
+    private int pngLevel = ImageExporter.DEFAULT_PNG_LEVEL;
+    private float jpegQuality = ImageExporter.DEFAULT_JPEG_QUALITY;
+    private File outputDir = new File(".");
+    private String prefix = "capture";
+    private boolean help = false;
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * 执行命令，返回进程退出码：0 成功，1 捕获或写入失败，2 参数错误
+     */
+    static int run(String[] args) {
+        CaptureCommand command = new CaptureCommand();
+        try {
+            command.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (command.help) {
+            System.out.println(USAGE);
+            return 0;
+        }
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("No display available: set DISPLAY (e.g. run under Xvfb) and do not use -Djava.awt.headless=true");
+            return 1;
+        }
+        try {
+            return command.execute();
+        } catch (AWTException | IllegalStateException e) {
+            System.err.println("Capture failed: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (option.equals("-h") || option.equals("--help")) {
+                help = true;
+                return;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--region":
+                    targets.add(Target.region(parseRegion(value)));
+                    break;
+                case "--monitor":
+                    targets.add(value.equals("all") ? Target.all() : Target.monitor(parseInt(option, value, 0)));
+                    break;
+                case "--count":
+                    count = parseInt(option, value, 0);
+                    break;
+                case "--interval":
+                    interval = parseInt(option, value, 0);
+                    break;
+                case "--format":
+                    format = parseFormat(value);
+                    break;
+                case "--level":
+                    pngLevel = parseInt(option, value, 0);
+                    if (pngLevel > 9) {
+                        throw new IllegalArgumentException("--level must be 0-9: " + value);
+                    }
+                    break;
+                case "--quality":
+                    jpegQuality = parseQuality(value);
+                    break;
+                case "--out":
+                    outputDir = new File(value);
+                    break;
+                case "--prefix":
+                    prefix = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+        if (targets.isEmpty()) {
+            targets.add(Target.all());
+        }
+    }
+
+    private static Rectangle parseRegion(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("--region must be X,Y,W,H: " + value);
+        }
+        try {
+            Rectangle region = new Rectangle(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                    Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim()));
+            if (region.width <= 0 || region.height <= 0) {
+                throw new IllegalArgumentException("--region width and height must be positive: " + value);
+            }
+            return region;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--region must be X,Y,W,H: " + value);
+        }
+    }
+
+    private static int parseInt(String option, String value, int min) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result < min) {
+                throw new IllegalArgumentException(option + " must be at least " + min + ": " + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " must be a number: " + value);
+        }
+    }
+
+    private static float parseQuality(String value) {
+        try {
+            float quality = Float.parseFloat(value);
+            if (quality < 0 || quality > 1) {
+                throw new IllegalArgumentException("--quality must be 0-1: " + value);
+            }
+            return quality;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--quality must be a number: " + value);
+        }
+    }
+
+    private static ImageExporter.Format parseFormat(String value) {
+        switch (value.toLowerCase()) {
+            case "png":
+                return ImageExporter.Format.PNG;
+            case "jpg":
+            case "jpeg":
+                return ImageExporter.Format.JPEG;
+            default:
+                throw new IllegalArgumentException("--format must be png or jpeg: " + value);
+        }
+    }
+
+    private int execute() throws AWTException, InterruptedException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            System.err.println("Cannot create " + outputDir);
+            return 1;
+        }
+
+        GraphicsDevice[] screens = GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices();
+        Robot robot = new Robot();
+        ScreenCapturer capturer = null;
+        for (Target target : targets) {
+            if (target.monitor >= screens.length) {
+                System.err.println("No monitor " + target.monitor + " (" + screens.length + " available)");
+                return 2;
+            }
+            if (target.all && capturer == null) {
+                capturer = new ScreenCapturer();
+            }
+        }
+
+        // 编码比捕获慢时最多积压这么多张，避免内存无限增长
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        Semaphore pending = new Semaphore(threads * 2);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "capture-encode");
+            t.setDaemon(true);
+            return t;
+        });
+        ImageExporter exporter = new ImageExporter(format, pngLevel, jpegQuality);
+
+        // 按固定节奏捕获：第 n 次在 start + n * interval 开始，不会因为单次耗时而累积漂移
+        long start = System.nanoTime();
+        for (int shot = 0; count == 0 || shot < count; shot++) {
+            long due = start + TimeUnit.MILLISECONDS.toNanos(interval) * shot;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            for (Target target : targets) {
+                long timestamp = System.currentTimeMillis();
+                long captureStart = System.nanoTime();
+                BufferedImage image;
+                if (target.all) {
+                    // 拼接缓冲区会被下一次捕获复用，这里复制一份交给编码线程
+                    image = copy(capturer.captureAll().getImage());
+                } else if (target.region != null) {
+                    image = robot.createScreenCapture(target.region);
+                } else {
+                    image = robot.createScreenCapture(screens[target.monitor].getDefaultConfiguration().getBounds());
+                }
+                long captureMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - captureStart);
+
+                File file = new File(outputDir, String.format("%s-%04d-%s.%s", prefix, shot, target.name,
+                        format.getExtension()));
+                pending.acquire();
+                executor.execute(() -> {
+                    try {
+                        exporter.write(image, file, percent -> { }, () -> false);
+                        report(System.out, timestamp, captureMillis, file);
+                    } catch (IOException | RuntimeException e) {
+                        failures.incrementAndGet();
+                        System.err.println("Write failed: " + file + ": " + e.getMessage());
+                    } finally {
+                        pending.release();
+                    }
+                });
+            }
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        return failures.get() == 0 ? 0 : 1;
+    }
+
+    private static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        copy.setData(image.getRaster());
+        return copy;
+    }
+
+    private static void report(PrintStream out, long timestamp, long captureMillis, File file) {
+        synchronized (out) {
+            out.println(Instant.ofEpochMilli(timestamp) + " " + captureMillis + " " + file.getPath());
+        }
+    }
+
+    // 一个捕获目标：所有显示器、单个显示器或屏幕区域
+    private static final class Target {
+        final boolean all;
+        final int monitor;
+        final Rectangle region;
+        final String name; // 用在文件名中
+
+        private Target(boolean all, int monitor, Rectangle region, String name) {
+            this.all = all;
+            this.monitor = monitor;
+            this.region = region;
+            this.name = name;
+        }
+
+        static Target all() {
+            return new Target(true, -1, null, "all");
+        }
+
+        static Target monitor(int index) {
+            return new Target(false, index, null, "monitor" + index);
+        }
+
+        static Target region(Rectangle region) {
+            return new Target(false, -1, region,
+                    "region" + region.x + "_" + region.y + "_" + region.width + "x" + region.height);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.tyler.screenshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.concurrent.TimeUnit;
+
+// 常驻截图服务：预先创建 Robot 和覆盖层窗口，热键触发时只做捕获和显示
+class CaptureService {
+    private final MainFrame mainFrame;
+    private final ScreenCapturer capturer;
+    private final ScreenshotOverlay overlay;
+    private boolean capturing = false;
+    private boolean scrolling = false; // 本次截图是否为滚动长截图
+
+    // 热键到覆盖层第一次绘制的耗时统计，-Dscreenshot.latencyStats=true 时每次截图输出
+    private static final boolean LATENCY_STATS = Boolean.getBoolean("screenshot.latencyStats");
+    private long requestTime = 0;
+    private long latencyCount = 0;
+    private long latencyTotal = 0;
+    private long latencyMax = 0;
+
+    public CaptureService(MainFrame mainFrame) throws AWTException {
+        this.mainFrame = mainFrame;
+        this.capturer = new ScreenCapturer();
+        this.overlay = new ScreenshotOverlay(mainFrame, this);
+        overlay.setScreenBounds(capturer.getAllScreensBounds());
+        // 提前创建原生窗口资源，第一次截图时不用再等
+        overlay.addNotify();
+    }
+
+    public void startScreenshot() {
+        start(false);
+    }
+
+    // 和普通截图一样先框选区域，选好后在该区域内滚动拼接
+    public void startScrollingCapture() {
+        start(true);
+    }
+
+    private void start(boolean scrolling) {
+        if (capturing) {
+            return;
+        }
+        capturing = true;
+        this.scrolling = scrolling;
+        requestTime = System.nanoTime();
+
+        if (!mainFrame.isShowing()) {
+            capture();
+            return;
+        }
+
+        // 主窗口可见时，等它真正隐藏后再捕获，而不是固定等待
+        mainFrame.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentHidden(ComponentEvent e) {
+                mainFrame.removeComponentListener(this);
+                Toolkit.getDefaultToolkit().sync();
+                SwingUtilities.invokeLater(CaptureService.this::capture);
+            }
+        });
+        mainFrame.setVisible(false);
+    }
+
+    private void capture() {
+        try {
+            if (capturer.refresh()) {
+                // 显示器配置变了，调整覆盖层大小
+                overlay.setScreenBounds(capturer.getAllScreensBounds());
+            }
+            overlay.activate(capturer.captureAll(), scrolling);
+        } catch (AWTException | IllegalStateException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(null, "Screenshot failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            finish();
+            mainFrame.setVisible(true);
+        }
+    }
+
+    // 覆盖层第一次绘制完成时调用
+    public void overlayPainted() {
+        if (requestTime == 0) {
+            return;
+        }
+        long latency = System.nanoTime() - requestTime;
+        requestTime = 0;
+
+        latencyCount++;
+        latencyTotal += latency;
+        latencyMax = Math.max(latencyMax, latency);
+        if (!LATENCY_STATS) {
+            return;
+        }
+        System.out.println(String.format("截图延迟: %d ms (平均 %d ms, 最大 %d ms, 共 %d 次)",
+                TimeUnit.NANOSECONDS.toMillis(latency), TimeUnit.NANOSECONDS.toMillis(latencyTotal / latencyCount),
+                TimeUnit.NANOSECONDS.toMillis(latencyMax), latencyCount));
+    }
+
+    // 覆盖层关闭（完成选择或取消）时调用
+    public void finish() {
+        capturing = false;
+        requestTime = 0;
+    }
+}
@@ -0,0 +1,79 @@
+package com.tyler.screenshot;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
+
+// 一次截图的结果：拼接后的整幅图像，以及每个显示器在图像中的区域
+class CapturedScreen {
+    private final BufferedImage image;
+    private final Rectangle screenBounds; // 图像对应的屏幕坐标范围
+    private final List<MonitorRegion> monitors;
+
+    CapturedScreen(BufferedImage image, Rectangle screenBounds, List<MonitorRegion> monitors) {
+        this.image = image;
+        this.screenBounds = screenBounds;
+        this.monitors = Collections.unmodifiableList(monitors);
+    }
+
+    // 注意：图像缓冲区会被下一次截图复用，需要长期保存时应复制
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public Rectangle getScreenBounds() {
+        return new Rectangle(screenBounds);
+    }
+
+    public List<MonitorRegion> getMonitors() {
+        return monitors;
+    }
+
+    // 返回图像坐标 (x, y) 处的像素来自哪个显示器，不在任何显示器内时返回 null
+    public MonitorRegion monitorAt(int x, int y) {
+        for (MonitorRegion monitor : monitors) {
+            if (monitor.getBounds().contains(x, y)) {
+                return monitor;
+            }
+        }
+        return null;
+    }
+
+    // 单个显示器在拼接图像中的区域
+    static class MonitorRegion {
+        private final String deviceId;
+        private final Rectangle bounds; // 图像坐标
+        private final double scaleX;
+        private final double scaleY;
+
+        MonitorRegion(String deviceId, Rectangle bounds, double scaleX, double scaleY) {
+            this.deviceId = deviceId;
+            this.bounds = bounds;
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+        }
+
+        public String getDeviceId() {
+            return deviceId;
+        }
+
+        public Rectangle getBounds() {
+            return new Rectangle(bounds);
+        }
+
+        public double getScaleX() {
+            return scaleX;
+        }
+
+        public double getScaleY() {
+            return scaleY;
+        }
+
+        @Override
+        public String toString() {
+            return deviceId + " " + bounds.x + "," + bounds.y + " " + bounds.width + "x" + bounds.height
+                    + " @" + scaleX + "x";
+        }
+    }
+}
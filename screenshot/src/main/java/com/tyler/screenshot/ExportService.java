@@ -0,0 +1,85 @@
+package com.tyler.screenshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台导出服务：在线程池中编码并写入文件，编辑窗口不会被阻塞。
+ * 每个导出任务有自己的进度对话框，可以取消，多个导出可以同时进行。
+ */
+class ExportService {
+    private final ExecutorService executor;
+
+    public ExportService() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "screenshot-export-" + count.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
+    }
+
+    public Future<?> export(Component parent, BufferedImage image, File file, ImageExporter exporter) {
+        return export(parent, image, file, exporter, null);
+    }
+
+    /**
+     * 导出图像。调用方交出 image 后不能再修改它（传入快照）。必须在 EDT 上调用，结果也在 EDT 上提示。
+     * 写入成功后在 EDT 上调用 onSaved（可以为 null）。
+     */
+    public Future<?> export(Component parent, BufferedImage image, File file, ImageExporter exporter,
+                            Runnable onSaved) {
+        ProgressMonitor monitor = new ProgressMonitor(parent, "Exporting " + file.getName(), null, 0, 100);
+        monitor.setMillisToDecideToPopup(200);
+        monitor.setMillisToPopup(200);
+
+        // ProgressMonitor 只能在 EDT 上访问，取消状态通过 volatile 标记传给后台线程
+        CancelFlag cancel = new CancelFlag();
+        Timer poll = new Timer(100, e -> {
+            if (monitor.isCanceled()) {
+                cancel.cancelled = true;
+            }
+        });
+        poll.start();
+
+        return executor.submit(() -> {
+            try {
+                boolean completed = exporter.write(image, file,
+                        percent -> SwingUtilities.invokeLater(() -> monitor.setProgress(percent)),
+                        () -> cancel.cancelled);
+                SwingUtilities.invokeLater(() -> {
+                    poll.stop();
+                    monitor.close();
+                    if (completed) {
+                        if (onSaved != null) {
+                            onSaved.run();
+                        }
+                        JOptionPane.showMessageDialog(parent, "Screenshot saved to: " + file.getAbsolutePath(),
+                                "Save Successful", JOptionPane.INFORMATION_MESSAGE);
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                SwingUtilities.invokeLater(() -> {
+                    poll.stop();
+                    monitor.close();
+                    JOptionPane.showMessageDialog(parent, "Save failed: " + e.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        });
+    }
+
+    private static final class CancelFlag {
+        volatile boolean cancelled = false;
+    }
+}
@@ -0,0 +1,181 @@
+package com.tyler.screenshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 截图历史浏览窗口。列表只读取索引中的记录，缩略图在单元格第一次显示时从索引解出并缓存，
+ * 几千条记录也能立即打开；双击一条记录才读取完整图像并打开编辑窗口。
+ * "Similar" 按相似度索引列出与选中截图相近的记录，"Refresh" 回到完整列表。
+ */
+class HistoryBrowser extends JFrame {
+    private static final int MAX_CACHED_THUMBNAILS = 512;
+    private static final int SIMILAR_DISTANCE = 10; // dHash 汉明距离，10 以内通常是同一画面
+
+    private final MainFrame mainFrame;
+    private final ScreenshotHistory history;
+    private final SimilarityIndex similarityIndex; // 可以为 null
+    private final DefaultListModel<ScreenshotHistory.Entry> model = new DefaultListModel<>();
+    private final JList<ScreenshotHistory.Entry> list = new JList<>(model);
+    private final Map<Integer, ImageIcon> thumbnails = new LinkedHashMap<Integer, ImageIcon>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ImageIcon> eldest) {
+            return size() > MAX_CACHED_THUMBNAILS;
+        }
+    };
+
+    public HistoryBrowser(MainFrame mainFrame, ScreenshotHistory history, SimilarityIndex similarityIndex) {
+        this.mainFrame = mainFrame;
+        this.history = history;
+        this.similarityIndex = similarityIndex;
+        initComponents();
+        reload();
+    }
+
+    private void initComponents() {
+        setTitle("Screenshot History");
+        setSize(420, 600);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+
+        // 固定单元格尺寸，JList 不需要为了布局逐个测量所有记录
+        list.setFixedCellHeight(ScreenshotHistory.THUMBNAIL_HEIGHT + 8);
+        list.setFixedCellWidth(380);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setCellRenderer(new EntryRenderer());
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && list.getSelectedValue() != null) {
+                    open(list.getSelectedValue());
+                }
+            }
+        });
+
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> reload());
+        JButton similarButton = new JButton("Similar");
+        similarButton.setEnabled(similarityIndex != null);
+        similarButton.addActionListener(e -> {
+            if (list.getSelectedValue() != null) {
+                showSimilar(list.getSelectedValue());
+            }
+        });
+        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        bottom.add(similarButton);
+        bottom.add(refreshButton);
+
+        add(new JScrollPane(list), BorderLayout.CENTER);
+        add(bottom, BorderLayout.SOUTH);
+    }
+
+    // 重新读取索引，最新的在前
+    public void reload() {
+        int size = history.size();
+        List<ScreenshotHistory.Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(history.getEntry(i));
+        }
+        entries.sort((a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+        setEntries(entries);
+        setTitle("Screenshot History (" + size + ")");
+    }
+
+    private void setEntries(List<ScreenshotHistory.Entry> entries) {
+        model.clear();
+        for (ScreenshotHistory.Entry entry : entries) {
+            model.addElement(entry);
+        }
+    }
+
+    // 用历史记录中的 dHash 查询，只列出索引中距离足够近的历史记录，不需要读取完整图像
+    private void showSimilar(ScreenshotHistory.Entry target) {
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<List<ScreenshotHistory.Entry>, Void>() {
+            @Override
+            protected List<ScreenshotHistory.Entry> doInBackground() throws Exception {
+                List<ScreenshotHistory.Entry> similar = new ArrayList<>();
+                for (SimilarityIndex.Match match : similarityIndex.findSimilar(target.getDHash(), SIMILAR_DISTANCE)) {
+                    String reference = match.getReference();
+                    if (reference.startsWith(SimilarityIndex.HISTORY_PREFIX)) {
+                        ScreenshotHistory.Entry entry =
+                                history.findByHash(reference.substring(SimilarityIndex.HISTORY_PREFIX.length()));
+                        if (entry != null) {
+                            similar.add(entry);
+                        }
+                    }
+                }
+                return similar;
+            }
+
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    List<ScreenshotHistory.Entry> similar = get();
+                    setEntries(similar);
+                    setTitle("Similar Screenshots (" + similar.size() + ")");
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(HistoryBrowser.this, "Search failed: " + e.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private ImageIcon getThumbnail(ScreenshotHistory.Entry entry) {
+        return thumbnails.computeIfAbsent(entry.getIndex(), i -> new ImageIcon(history.getThumbnail(i)));
+    }
+
+    private void open(ScreenshotHistory.Entry entry) {
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<BufferedImage, Void>() {
+            @Override
+            protected BufferedImage doInBackground() throws Exception {
+                return history.load(entry);
+            }
+
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    BufferedImage image = get();
+                    new EditFrame(mainFrame, image, new Rectangle(0, 0, image.getWidth(), image.getHeight()))
+                            .setVisible(true);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(HistoryBrowser.this, "Open failed: " + e.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private class EntryRenderer extends DefaultListCellRenderer {
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            ScreenshotHistory.Entry entry = (ScreenshotHistory.Entry) value;
+            setIcon(getThumbnail(entry));
+            setIconTextGap(10);
+            String monitor = entry.getMonitor().isEmpty() ? "" : " · " + entry.getMonitor();
+            setText("<html>" + dateFormat.format(new Date(entry.getTimestamp())) + "<br>"
+                    + entry.getWidth() + "×" + entry.getHeight() + monitor + " · "
+                    + entry.getSize() / 1024 + " KB</html>");
+            return this;
+        }
+    }
+}
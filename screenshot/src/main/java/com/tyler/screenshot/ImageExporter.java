@@ -0,0 +1,184 @@
+package com.tyler.screenshot;
+
+import com.tyler.core.ParallelPngEncoder;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOWriteProgressListener;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * 按格式和编码参数把图像写入文件，不涉及界面，可以在任意线程调用。
+ * 支持 PNG（可选 deflate 级别）、JPEG（可选质量）和 BMP，编码过程中汇报进度并可以取消。
+ * PNG 用多线程编码器，多显示器的大截图也能很快保存；其他格式用 ImageIO。
+ */
+class ImageExporter {
+    enum Format {
+        PNG("png", "PNG Image (*.png)"),
+        JPEG("jpg", "JPEG Image (*.jpg)"),
+        BMP("bmp", "BMP Image (*.bmp)");
+
+        private final String extension;
+        private final String description;
+
+        Format(String extension, String description) {
+            this.extension = extension;
+            this.description = description;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        // 按文件扩展名识别格式，不认识的返回 null
+        public static Format fromFileName(String name) {
+            String lower = name.toLowerCase();
+            for (Format format : values()) {
+                if (lower.endsWith("." + format.extension)) {
+                    return format;
+                }
+            }
+            if (lower.endsWith(".jpeg")) {
+                return JPEG;
+            }
+            return null;
+        }
+    }
+
+    public static final int DEFAULT_PNG_LEVEL = 6;
+    public static final float DEFAULT_JPEG_QUALITY = 0.9f;
+
+    private final Format format;
+    private final int pngLevel;     // 0-9，0 不压缩
+    private final float jpegQuality; // 0-1
+
+    ImageExporter(Format format, int pngLevel, float jpegQuality) {
+        if (pngLevel < 0 || pngLevel > 9) {
+            throw new IllegalArgumentException("PNG level must be 0-9: " + pngLevel);
+        }
+        if (jpegQuality < 0 || jpegQuality > 1) {
+            throw new IllegalArgumentException("JPEG quality must be 0-1: " + jpegQuality);
+        }
+        this.format = format;
+        this.pngLevel = pngLevel;
+        this.jpegQuality = jpegQuality;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * 写入文件，progress 收到 0-100 的进度。cancelled 返回 true 时中止编码，已有的同名文件保持不变。
+     * 先写同目录下的临时文件再改名，覆盖较大的旧文件时不会留下旧内容，失败或取消也不会破坏原文件。
+     *
+     * @return 写完返回 true，被取消返回 false
+     */
+    public boolean write(BufferedImage image, File file, IntConsumer progress, BooleanSupplier cancelled) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile("export", ".tmp", dir);
+        try {
+            boolean completed = format == Format.PNG
+                    ? writePng(image, temp, progress, cancelled)
+                    : writeImageIO(image, temp, progress, cancelled);
+            if (completed) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return completed;
+        } finally {
+            temp.delete();
+        }
+    }
+
+    private boolean writeImageIO(BufferedImage image, File file, IntConsumer progress, BooleanSupplier cancelled) throws IOException {
+        ImageWriter writer = getWriter();
+        boolean completed = false;
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            if (output == null) {
+                throw new IOException("Cannot open " + file);
+            }
+            writer.setOutput(output);
+            writer.addIIOWriteProgressListener(new IIOWriteProgressListener() {
+                @Override
+                public void imageStarted(ImageWriter source, int imageIndex) {
+                    progress.accept(0);
+                }
+
+                @Override
+                public void imageProgress(ImageWriter source, float percentageDone) {
+                    if (cancelled.getAsBoolean()) {
+                        source.abort();
+                    }
+                    progress.accept((int) percentageDone);
+                }
+
+                @Override
+                public void imageComplete(ImageWriter source) {
+                    progress.accept(100);
+                }
+
+                @Override
+                public void thumbnailStarted(ImageWriter source, int imageIndex, int thumbnailIndex) {
+                }
+
+                @Override
+                public void thumbnailProgress(ImageWriter source, float percentageDone) {
+                }
+
+                @Override
+                public void thumbnailComplete(ImageWriter source) {
+                }
+
+                @Override
+                public void writeAborted(ImageWriter source) {
+                }
+            });
+            writer.write(null, new IIOImage(image, null, null), createParam(writer));
+            completed = !cancelled.getAsBoolean();
+        } finally {
+            writer.dispose();
+        }
+        return completed;
+    }
+
+    private boolean writePng(BufferedImage image, File file, IntConsumer progress, BooleanSupplier cancelled) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            progress.accept(0);
+            return new ParallelPngEncoder(pngLevel).encode(image, out, progress, cancelled);
+        }
+    }
+
+    private ImageWriter getWriter() throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format.name());
+        if (!writers.hasNext()) {
+            throw new IOException("No writer for " + format);
+        }
+        return writers.next();
+    }
+
+    private ImageWriteParam createParam(ImageWriter writer) {
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (format == Format.JPEG) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+        }
+        return param;
+    }
+}
@@ -0,0 +1,110 @@
+package com.tyler.screenshot;
+
+import com.tyler.core.ParallelPngEncoder;
+
+import java.awt.*;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按需生成内容的剪贴板数据：复制时只记下原图和已提交形状的列表，
+ * 粘贴方真正请求某种格式时才合成图像、编码 PNG 或写临时文件，结果缓存起来。
+ * 提供图像、PNG 字节流和文件列表三种格式。
+ */
+class LazyImageTransferable implements Transferable {
+    static final DataFlavor PNG_FLAVOR = new DataFlavor("image/png", "PNG Image");
+
+    private static final DataFlavor[] FLAVORS = {
+            DataFlavor.imageFlavor, PNG_FLAVOR, DataFlavor.javaFileListFlavor
+    };
+
+    private final BufferedImage background; // 不会再被修改的原图
+    private final List<Shape> shapes;       // 复制时已提交的形状，提交后不再变化
+
+    private BufferedImage image;
+    private byte[] png;
+    private File file;
+
+    LazyImageTransferable(BufferedImage background, Collection<Shape> shapes) {
+        this.background = background;
+        this.shapes = Collections.unmodifiableList(new ArrayList<>(shapes));
+    }
+
+    @Override
+    public DataFlavor[] getTransferDataFlavors() {
+        return FLAVORS.clone();
+    }
+
+    @Override
+    public boolean isDataFlavorSupported(DataFlavor flavor) {
+        for (DataFlavor supported : FLAVORS) {
+            if (supported.equals(flavor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+        if (DataFlavor.imageFlavor.equals(flavor)) {
+            return getImage();
+        }
+        if (PNG_FLAVOR.equals(flavor)) {
+            return new ByteArrayInputStream(getPng());
+        }
+        if (DataFlavor.javaFileListFlavor.equals(flavor)) {
+            return Collections.singletonList(getFile());
+        }
+        throw new UnsupportedFlavorException(flavor);
+    }
+
+    // 合成原图和形状
+    private synchronized BufferedImage getImage() {
+        if (image == null) {
+            image = new BufferedImage(background.getWidth(), background.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = image.createGraphics();
+            g2d.drawImage(background, 0, 0, null);
+            for (Shape shape : shapes) {
+                shape.draw(g2d);
+            }
+            g2d.dispose();
+        }
+        return image;
+    }
+
+    private synchronized byte[] getPng() throws IOException {
+        if (png == null) {
+            BufferedImage source = getImage();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(source.getWidth() * source.getHeight());
+            new ParallelPngEncoder(ImageExporter.DEFAULT_PNG_LEVEL).encode(source, out);
+            png = out.toByteArray();
+        }
+        return png;
+    }
+
+    // 写入临时文件，供只接受文件的程序（如文件管理器、聊天工具）粘贴
+    private synchronized File getFile() throws IOException {
+        if (file == null || !file.exists()) {
+            File temp = File.createTempFile("screenshot-", ".png");
+            temp.deleteOnExit();
+            try (OutputStream out = new FileOutputStream(temp)) {
+                out.write(getPng());
+            }
+            file = temp;
+        }
+        return file;
+    }
+}
@@ -0,0 +1,321 @@
+package com.tyler.screenshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 隐藏或最小化的钉图的压缩存储。
+ * 图像用 Deflate 最快级别压缩后放在堆外直接内存中，超出内存预算时把最久未使用的条目
+ * 写入临时文件并以内存映射方式读取。堆上只保留一个小缩略图，显示时再解压完整图像。
+ * 内存预算通过系统属性 screenshot.pinStore.budgetMB 配置（默认 256MB）。
+ */
+class PinStore {
+    private static final int DEFAULT_BUDGET_MB = 256;
+    private static final int THUMBNAIL_SIZE = 160;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final long budget;
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // 按访问顺序，便于溢出最久未用的
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "pin-store");
+        t.setDaemon(true);
+        return t;
+    });
+    private long nextId = 1;
+    private long residentBytes = 0; // 直接内存中的压缩数据
+    private long spilledBytes = 0;  // 写入临时文件的压缩数据
+    private RandomAccessFile spillFile;
+    private File spillPath;
+
+    PinStore(long budget) {
+        this.budget = budget;
+    }
+
+    static PinStore createDefault() {
+        return new PinStore(Integer.getInteger("screenshot.pinStore.budgetMB", DEFAULT_BUDGET_MB) * 1024L * 1024L);
+    }
+
+    // 在后台压缩图像，完成后在 EDT 上回调条目编号。调用方在回调之前不能修改图像
+    public void store(BufferedImage image, LongConsumer callback) {
+        executor.execute(() -> {
+            ByteBuffer data = compress(image);
+            BufferedImage thumbnail = createThumbnail(image);
+            SwingUtilities.invokeLater(() -> callback.accept(add(image.getWidth(), image.getHeight(), data, thumbnail)));
+        });
+    }
+
+    private synchronized long add(int width, int height, ByteBuffer data, BufferedImage thumbnail) {
+        long id = nextId++;
+        entries.put(id, new Entry(width, height, data, thumbnail));
+        residentBytes += data.capacity();
+        enforceBudget();
+        return id;
+    }
+
+    // 解压完整图像
+    public BufferedImage load(long id) {
+        Entry entry;
+        ByteBuffer data;
+        synchronized (this) {
+            entry = entries.get(id);
+            if (entry == null) {
+                throw new IllegalArgumentException("Unknown pin: " + id);
+            }
+            // enforceBudget 会在锁内把 data 换成映射缓冲区，必须在锁内读取
+            data = entry.data.duplicate();
+        }
+        return decompress(data, entry.width, entry.height);
+    }
+
+    public synchronized BufferedImage getThumbnail(long id) {
+        Entry entry = entries.get(id);
+        return entry != null ? entry.thumbnail : null;
+    }
+
+    public synchronized void remove(long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        if (entry.spilled) {
+            spilledBytes -= entry.data.capacity();
+            if (spilledBytes == 0) {
+                resetSpillFile();
+            }
+        } else {
+            // 直接内存在缓冲区对象被回收时释放
+            residentBytes -= entry.data.capacity();
+        }
+    }
+
+    // 使用情况报告
+    public synchronized String getUsageReport() {
+        int spilledCount = 0;
+        long originalBytes = 0;
+        long thumbnailBytes = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.spilled) {
+                spilledCount++;
+            }
+            originalBytes += 4L * entry.width * entry.height;
+            thumbnailBytes += 4L * entry.thumbnail.getWidth() * entry.thumbnail.getHeight();
+        }
+        long compressedBytes = residentBytes + spilledBytes;
+        return String.format("Compressed pins: %d (%d in memory, %d on disk)%n"
+                        + "Memory: %s / %s budget%n"
+                        + "Disk: %s%n"
+                        + "Thumbnails: %s%n"
+                        + "Uncompressed size: %s (ratio %.1f:1)",
+                entries.size(), entries.size() - spilledCount, spilledCount,
+                formatBytes(residentBytes), formatBytes(budget),
+                formatBytes(spilledBytes),
+                formatBytes(thumbnailBytes),
+                formatBytes(originalBytes), compressedBytes > 0 ? (double) originalBytes / compressedBytes : 0.0);
+    }
+
+    // 超出预算时把最久未使用的条目写入临时文件
+    private void enforceBudget() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (residentBytes > budget && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.spilled) {
+                continue;
+            }
+            try {
+                ByteBuffer mapped = spill(entry.data);
+                residentBytes -= entry.data.capacity();
+                spilledBytes += mapped.capacity();
+                entry.data = mapped;
+                entry.spilled = true;
+            } catch (IOException e) {
+                // 写文件失败时保留在内存中，只是超出预算
+                e.printStackTrace();
+                return;
+            }
+        }
+    }
+
+    private ByteBuffer spill(ByteBuffer data) throws IOException {
+        if (spillFile == null) {
+            spillPath = File.createTempFile("pinstore", ".bin");
+            spillPath.deleteOnExit();
+            spillFile = new RandomAccessFile(spillPath, "rw");
+        }
+        FileChannel channel = spillFile.getChannel();
+        long position = channel.size();
+        ByteBuffer source = data.duplicate();
+        ((Buffer) source).clear();
+        while (source.hasRemaining()) {
+            channel.write(source, position + source.position());
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, data.capacity());
+    }
+
+    // 所有溢出的条目都已删除时清空临时文件
+    private void resetSpillFile() {
+        if (spillFile == null) {
+            return;
+        }
+        try {
+            spillFile.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            spillFile = null;
+            // 映射的区域在缓冲区被回收前可能还占着文件，删除失败时留给 deleteOnExit
+            spillPath.delete();
+            spillPath = null;
+        }
+    }
+
+    // 按行取出 RGB 三个字节压缩
+    private static ByteBuffer compress(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean intRgb = image.getType() == BufferedImage.TYPE_INT_RGB;
+        int[] row = new int[width];
+        byte[] rowBytes = new byte[width * 3];
+        byte[] chunk = new byte[CHUNK_SIZE];
+        List<byte[]> chunks = new ArrayList<>();
+        int total = 0;
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            for (int y = 0; y < height; y++) {
+                if (intRgb) {
+                    // 通过 Raster 复制，不取底层数组，避免图像失去显存加速
+                    image.getRaster().getDataElements(0, y, width, 1, row);
+                } else {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                }
+                for (int x = 0, i = 0; x < width; x++) {
+                    int rgb = row[x];
+                    rowBytes[i++] = (byte) (rgb >> 16);
+                    rowBytes[i++] = (byte) (rgb >> 8);
+                    rowBytes[i++] = (byte) rgb;
+                }
+                deflater.setInput(rowBytes);
+                while (!deflater.needsInput()) {
+                    int n = deflater.deflate(chunk);
+                    if (n > 0) {
+                        chunks.add(Arrays.copyOf(chunk, n));
+                        total += n;
+                    }
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                chunks.add(Arrays.copyOf(chunk, n));
+                total += n;
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteBuffer data = ByteBuffer.allocateDirect(total);
+        for (byte[] c : chunks) {
+            data.put(c);
+        }
+        ((Buffer) data).flip();
+        return data;
+    }
+
+    private static BufferedImage decompress(ByteBuffer data, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        byte[] rowBytes = new byte[width * 3];
+        byte[] chunk = new byte[CHUNK_SIZE];
+
+        Inflater inflater = new Inflater();
+        try {
+            for (int y = 0; y < height; y++) {
+                int filled = 0;
+                while (filled < rowBytes.length) {
+                    if (inflater.needsInput()) {
+                        int n = Math.min(chunk.length, data.remaining());
+                        if (n == 0) {
+                            throw new IllegalStateException("Truncated pin data");
+                        }
+                        data.get(chunk, 0, n);
+                        inflater.setInput(chunk, 0, n);
+                    }
+                    filled += inflater.inflate(rowBytes, filled, rowBytes.length - filled);
+                }
+                for (int x = 0, i = 0, p = y * width; x < width; x++) {
+                    pixels[p + x] = ((rowBytes[i++] & 0xff) << 16) | ((rowBytes[i++] & 0xff) << 8) | (rowBytes[i++] & 0xff);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted pin data", e);
+        } finally {
+            inflater.end();
+        }
+        return image;
+    }
+
+    // 逐级减半缩小，避免一次缩小太多产生混叠
+    private static BufferedImage createThumbnail(BufferedImage image) {
+        double ratio = Math.min(1.0, (double) THUMBNAIL_SIZE / Math.max(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) (image.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) (image.getHeight() * ratio));
+
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = scale(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return scale(current, targetWidth, targetHeight);
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = result.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return result;
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes >= 1024L * 1024L) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        }
+        return String.format("%.1f KB", bytes / 1024.0);
+    }
+
+    private static final class Entry {
+        final int width;
+        final int height;
+        final BufferedImage thumbnail;
+        ByteBuffer data;
+        boolean spilled = false;
+
+        Entry(int width, int height, ByteBuffer data, BufferedImage thumbnail) {
+            this.width = width;
+            this.height = height;
+            this.data = data;
+            this.thumbnail = thumbnail;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.tyler.screenshot;
+
+import com.tyler.core.ScreenBounds;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+// 常驻的屏幕捕获器：每个显示器一个 Robot，各显示器并行捕获后拼接到预分配的缓冲区
+class ScreenCapturer {
+    private final Map<GraphicsDevice, Robot> robots = new HashMap<>();
+    private final ExecutorService executor;
+    private List<GraphicsDevice> devices = new ArrayList<>();
+    private Rectangle allScreensBounds; // 所有屏幕的组合边界
+    private BufferedImage buffer; // 复用的拼接缓冲区，显示器之外的区域保持黑色
+
+    public ScreenCapturer() throws AWTException {
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "screen-capture");
+            t.setDaemon(true);
+            return t;
+        });
+        refresh();
+    }
+
+    // 重新读取显示器配置，为新接入的显示器创建 Robot；返回组合边界是否发生变化
+    public synchronized boolean refresh() throws AWTException {
+        Rectangle bounds = ScreenBounds.getAdjustedScreenBounds();
+        GraphicsDevice[] screens = GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices();
+
+        Map<GraphicsDevice, Robot> current = new HashMap<>();
+        List<GraphicsDevice> currentDevices = new ArrayList<>();
+        for (GraphicsDevice device : screens) {
+            Robot robot = robots.get(device);
+            current.put(device, robot != null ? robot : new Robot(device));
+            currentDevices.add(device);
+        }
+        robots.clear();
+        robots.putAll(current);
+
+        boolean changed = !bounds.equals(allScreensBounds) || !currentDevices.equals(devices);
+        devices = currentDevices;
+        allScreensBounds = bounds;
+        if (changed) {
+            buffer = null;
+        }
+        return changed;
+    }
+
+    public synchronized Rectangle getAllScreensBounds() {
+        return new Rectangle(allScreensBounds);
+    }
+
+    // 并行捕获所有显示器并拼接。返回的图像缓冲区会被下一次调用复用
+    public synchronized CapturedScreen captureAll() {
+        if (buffer == null) {
+            buffer = new BufferedImage(allScreensBounds.width, allScreensBounds.height, BufferedImage.TYPE_INT_RGB);
+        }
+
+        List<CapturedScreen.MonitorRegion> monitors = new ArrayList<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (GraphicsDevice device : devices) {
+            GraphicsConfiguration gc = device.getDefaultConfiguration();
+            Rectangle screen = gc.getBounds().intersection(allScreensBounds);
+            if (screen.isEmpty()) {
+                continue;
+            }
+            Rectangle region = new Rectangle(screen.x - allScreensBounds.x, screen.y - allScreensBounds.y,
+                    screen.width, screen.height);
+            AffineTransform transform = gc.getDefaultTransform();
+            monitors.add(new CapturedScreen.MonitorRegion(device.getIDstring(), region,
+                    transform.getScaleX(), transform.getScaleY()));
+
+            Robot robot = robots.get(device);
+            tasks.add(() -> {
+                copyInto(robot.createScreenCapture(screen), region);
+                return null;
+            });
+        }
+
+        if (tasks.size() == 1) {
+            // 单显示器不需要切换线程
+            try {
+                tasks.get(0).call();
+            } catch (Exception e) {
+                throw new IllegalStateException("Screen capture failed", e);
+            }
+        } else {
+            try {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Screen capture interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Screen capture failed", e.getCause());
+            }
+        }
+
+        return new CapturedScreen(buffer, new Rectangle(allScreensBounds), monitors);
+    }
+
+    // 按行复制到缓冲区；各显示器区域互不重叠，可以并行写入
+    private void copyInto(BufferedImage capture, Rectangle region) {
+        int width = Math.min(capture.getWidth(), region.width);
+        int height = Math.min(capture.getHeight(), region.height);
+        Raster source = capture.getRaster();
+        if (capture.getType() == BufferedImage.TYPE_INT_RGB && source.getDataBuffer() instanceof DataBufferInt) {
+            int[] src = ((DataBufferInt) source.getDataBuffer()).getData();
+            int[] dst = ((DataBufferInt) buffer.getRaster().getDataBuffer()).getData();
+            int srcStride = capture.getWidth();
+            int dstStride = buffer.getWidth();
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(src, y * srcStride, dst, (region.y + y) * dstStride + region.x, width);
+            }
+        } else {
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                capture.getRGB(0, y, width, 1, row, 0, width);
+                buffer.setRGB(region.x, region.y + y, width, 1, row, 0, width);
+            }
+        }
+    }
+}
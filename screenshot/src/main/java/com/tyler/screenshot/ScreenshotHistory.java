@@ -0,0 +1,415 @@
+package com.tyler.screenshot;
+
+import com.tyler.core.ParallelPngEncoder;
+import com.tyler.core.PerceptualHash;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * 截图历史：每次截图自动保存，按像素内容的 SHA-256 寻址，相同的截图只存一份。
+ * 哈希、缩略图和 PNG 压缩都在后台线程完成。
+ * 索引是固定长度记录的内存映射文件，每条记录包含时间、尺寸、来源显示器、dHash 和一个小缩略图，
+ * 浏览历史和查找相似截图时只读索引，不需要解码完整图像。
+ * 存储目录通过系统属性 screenshot.history.dir 配置（默认为用户目录下的 .screenshot-history）。
+ */
+class ScreenshotHistory {
+    public static final int THUMBNAIL_WIDTH = 80;
+    public static final int THUMBNAIL_HEIGHT = 50;
+
+    private static final byte[] MAGIC = "SHIST001".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 8192;
+    private static final int GROW_RECORDS = 256; // 索引文件每次扩展的记录数
+
+    // 文件头
+    private static final int COUNT_OFFSET = 8;
+
+    // 记录内各字段的偏移
+    private static final int TIMESTAMP = 0;
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 12;
+    private static final int THUMB_WIDTH = 16;
+    private static final int THUMB_HEIGHT = 20;
+    private static final int OBJECT_SIZE = 24;
+    private static final int HASH = 32;        // 32 字节 SHA-256
+    private static final int MONITOR = 64;     // 1 字节长度 + 最多 31 字节 UTF-8
+    private static final int MONITOR_MAX = 31;
+    private static final int DHASH = 96;       // 8 字节 dHash，查找相似截图用
+    private static final int THUMBNAIL = 192;  // RGB565，THUMBNAIL_WIDTH * THUMBNAIL_HEIGHT * 2 字节
+
+    private final File objectsDir;
+    private final RandomAccessFile indexFile;
+    private final FileChannel channel;
+    private MappedByteBuffer index;
+    private int count;
+    private final Map<String, Integer> byHash = new HashMap<>(); // 内容哈希 -> 记录序号
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "screenshot-history");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    ScreenshotHistory(File dir) throws IOException {
+        this.objectsDir = new File(dir, "objects");
+        if (!objectsDir.isDirectory() && !objectsDir.mkdirs()) {
+            throw new IOException("Cannot create " + objectsDir);
+        }
+        this.indexFile = new RandomAccessFile(new File(dir, "index.bin"), "rw");
+        this.channel = indexFile.getChannel();
+
+        if (channel.size() < HEADER_SIZE) {
+            map(HEADER_SIZE + (long) GROW_RECORDS * RECORD_SIZE);
+            putBytes(0, MAGIC, MAGIC.length);
+            index.putInt(COUNT_OFFSET, 0);
+        } else {
+            map(channel.size());
+            if (!Arrays.equals(getBytes(0, MAGIC.length), MAGIC)) {
+                throw new IOException("Not a screenshot history index: " + dir);
+            }
+        }
+        count = index.getInt(COUNT_OFFSET);
+        for (int i = 0; i < count; i++) {
+            byHash.put(getHash(i), i);
+        }
+    }
+
+    static ScreenshotHistory openDefault() throws IOException {
+        return new ScreenshotHistory(getDefaultDirectory());
+    }
+
+    static File getDefaultDirectory() {
+        return new File(System.getProperty("screenshot.history.dir",
+                new File(System.getProperty("user.home"), ".screenshot-history").getPath()));
+    }
+
+    private void map(long size) throws IOException {
+        index = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    public void record(BufferedImage image, String monitor) {
+        record(image, monitor, null);
+    }
+
+    /**
+     * 在后台保存一张截图。调用方交出 image 后不能再修改它。monitor 为来源显示器，可以为 null。
+     * 新内容保存完成后在后台线程上用新记录调用 onStored（可以为 null），重复的内容不会调用。
+     */
+    public void record(BufferedImage image, String monitor, Consumer<Entry> onStored) {
+        long timestamp = System.currentTimeMillis();
+        executor.execute(() -> {
+            try {
+                Entry entry = add(image, monitor, timestamp);
+                if (entry != null && onStored != null) {
+                    onStored.accept(entry);
+                }
+            } catch (IOException | RuntimeException e) {
+                // 历史记录失败不影响截图本身
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // 存入了新内容时返回新记录，重复的内容返回 null
+    private Entry add(BufferedImage image, String monitor, long timestamp) throws IOException {
+        String hash = hashPixels(image);
+        Integer existing;
+        synchronized (this) {
+            existing = byHash.get(hash);
+            if (existing != null) {
+                // 相同内容已经存过，只更新时间
+                index.putLong(recordOffset(existing) + TIMESTAMP, timestamp);
+                return null;
+            }
+        }
+
+        File object = getObjectFile(hash);
+        long size = writeObject(image, object);
+        BufferedImage thumbnail = createThumbnail(image);
+        long dHash = PerceptualHash.dHash(image);
+
+        synchronized (this) {
+            if (HEADER_SIZE + (long) (count + 1) * RECORD_SIZE > index.capacity()) {
+                map(HEADER_SIZE + (long) (count + GROW_RECORDS) * RECORD_SIZE);
+            }
+            int offset = recordOffset(count);
+            index.putLong(offset + TIMESTAMP, timestamp);
+            index.putInt(offset + WIDTH, image.getWidth());
+            index.putInt(offset + HEIGHT, image.getHeight());
+            index.putInt(offset + THUMB_WIDTH, thumbnail.getWidth());
+            index.putInt(offset + THUMB_HEIGHT, thumbnail.getHeight());
+            index.putLong(offset + OBJECT_SIZE, size);
+            putBytes(offset + HASH, hexToBytes(hash), 32);
+            byte[] monitorBytes = monitor != null ? monitor.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            int monitorLength = Math.min(monitorBytes.length, MONITOR_MAX);
+            index.put(offset + MONITOR, (byte) monitorLength);
+            putBytes(offset + MONITOR + 1, monitorBytes, monitorLength);
+            index.putLong(offset + DHASH, dHash);
+            writeThumbnail(offset + THUMBNAIL, thumbnail);
+            // 记录写完后再增加计数，写到一半退出时这条记录不可见
+            byHash.put(hash, count);
+            count++;
+            index.putInt(COUNT_OFFSET, count);
+            return getEntry(count - 1);
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized Entry getEntry(int i) {
+        checkIndex(i);
+        int offset = recordOffset(i);
+        int monitorLength = index.get(offset + MONITOR) & 0xff;
+        byte[] monitorBytes = getBytes(offset + MONITOR + 1, monitorLength);
+        return new Entry(i, index.getLong(offset + TIMESTAMP), index.getInt(offset + WIDTH),
+                index.getInt(offset + HEIGHT), new String(monitorBytes, StandardCharsets.UTF_8),
+                getHash(i), index.getLong(offset + OBJECT_SIZE), index.getLong(offset + DHASH));
+    }
+
+    // 按内容哈希查找记录，没有时返回 null
+    public synchronized Entry findByHash(String hash) {
+        Integer i = byHash.get(hash);
+        return i != null ? getEntry(i) : null;
+    }
+
+    // 从索引直接解出缩略图，不读取图像文件
+    public synchronized BufferedImage getThumbnail(int i) {
+        checkIndex(i);
+        int offset = recordOffset(i);
+        int width = index.getInt(offset + THUMB_WIDTH);
+        int height = index.getInt(offset + THUMB_HEIGHT);
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) thumbnail.getRaster().getDataBuffer()).getData();
+        int p = offset + THUMBNAIL;
+        for (int j = 0; j < pixels.length; j++, p += 2) {
+            int v = index.getShort(p) & 0xffff;
+            int r = (v >> 11) & 0x1f;
+            int g = (v >> 5) & 0x3f;
+            int b = v & 0x1f;
+            pixels[j] = ((r << 3 | r >> 2) << 16) | ((g << 2 | g >> 4) << 8) | (b << 3 | b >> 2);
+        }
+        return thumbnail;
+    }
+
+    // 读取完整图像
+    public BufferedImage load(Entry entry) throws IOException {
+        BufferedImage image = ImageIO.read(getObjectFile(entry.getHash()));
+        if (image == null) {
+            throw new IOException("Cannot read screenshot " + entry.getHash());
+        }
+        return image;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + count);
+        }
+    }
+
+    private static int recordOffset(int i) {
+        return HEADER_SIZE + i * RECORD_SIZE;
+    }
+
+    private String getHash(int i) {
+        return bytesToHex(getBytes(recordOffset(i) + HASH, 32));
+    }
+
+    private byte[] getBytes(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = index.duplicate();
+        ((Buffer) view).position(offset); // 转成 Buffer 调用，Java 8 上也能运行
+        view.get(bytes);
+        return bytes;
+    }
+
+    private void putBytes(int offset, byte[] bytes, int length) {
+        ByteBuffer view = index.duplicate();
+        ((Buffer) view).position(offset);
+        view.put(bytes, 0, length);
+    }
+
+    private File getObjectFile(String hash) {
+        return new File(new File(objectsDir, hash.substring(0, 2)), hash + ".png");
+    }
+
+    // 先写临时文件再改名，中途失败不会留下损坏的对象
+    private static long writeObject(BufferedImage image, File object) throws IOException {
+        if (object.exists()) {
+            return object.length();
+        }
+        File dir = object.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File temp = File.createTempFile("object", ".tmp", dir);
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+                new ParallelPngEncoder(ImageExporter.DEFAULT_PNG_LEVEL).encode(image, out);
+            }
+            Files.move(temp.toPath(), object.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            temp.delete();
+        }
+        return object.length();
+    }
+
+    private void writeThumbnail(int offset, BufferedImage thumbnail) {
+        int width = thumbnail.getWidth();
+        int height = thumbnail.getHeight();
+        int[] row = new int[width];
+        int p = offset;
+        for (int y = 0; y < height; y++) {
+            thumbnail.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++, p += 2) {
+                int rgb = row[x];
+                index.putShort(p, (short) (((rgb >> 8) & 0xf800) | ((rgb >> 5) & 0x07e0) | ((rgb >> 3) & 0x001f)));
+            }
+        }
+    }
+
+    // 只对像素内容取哈希，同一画面无论何时截取都得到同一个对象
+    private static String hashPixels(BufferedImage image) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        digest.update(ByteBuffer.allocate(8).putInt(width).putInt(height).array());
+        int[] row = new int[width];
+        ByteBuffer bytes = ByteBuffer.allocate(width * 4);
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            ((Buffer) bytes).clear();
+            bytes.asIntBuffer().put(row);
+            digest.update(bytes.array());
+        }
+        return bytesToHex(digest.digest());
+    }
+
+    // 按比例缩小到不超过缩略图尺寸，逐级减半避免混叠
+    private static BufferedImage createThumbnail(BufferedImage image) {
+        double ratio = Math.min(1.0, Math.min((double) THUMBNAIL_WIDTH / image.getWidth(),
+                (double) THUMBNAIL_HEIGHT / image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = scale(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return scale(current, targetWidth, targetHeight);
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = result.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return result;
+    }
+
+    private static String bytesToHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    /**
+     * 索引中的一条记录
+     */
+    static final class Entry {
+        private final int index;
+        private final long timestamp;
+        private final int width;
+        private final int height;
+        private final String monitor;
+        private final String hash;
+        private final long size;
+        private final long dHash;
+
+        Entry(int index, long timestamp, int width, int height, String monitor, String hash, long size, long dHash) {
+            this.index = index;
+            this.timestamp = timestamp;
+            this.width = width;
+            this.height = height;
+            this.monitor = monitor;
+            this.hash = hash;
+            this.size = size;
+            this.dHash = dHash;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public String getMonitor() {
+            return monitor;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        // 压缩后的文件大小
+        public long getSize() {
+            return size;
+        }
+
+        public long getDHash() {
+            return dHash;
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package com.tyler.screenshot;
 
-import javax.imageio.ImageIO;
+import com.tyler.core.SingleInstance;
+import com.tyler.core.TextCache;
+
 import javax.swing.*;
-import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import java.awt.*;
@@ -14,15 +15,34 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.*;
 import java.util.List;
-import java.util.Stack;
 
 // 主类
 public class ScreenshotTool {
+    private static final String APP_ID = "screenshot-tool";
+    // 常驻实例能执行的命令，不带参数再次启动时默认为 screenshot
+    private static final List<String> COMMANDS = Arrays.asList("screenshot", "scroll", "show", "history");
+
+    private static MainFrame mainFrame; // 只在 EDT 上访问
+
     // 在ScreenshotTool的main方法中，添加DPI感知设置
     public static void main(String[] args) {
         // 高DPI屏幕适配（Java 9+支持）
         System.setProperty("sun.java2d.uiScale", "1.0");
         System.setProperty("awt.useSystemAAFontSettings", "on");
+        if (args.length > 0 && args[0].equals("capture")) {
+            // 命令行截图模式：不创建主窗口、托盘和覆盖层
+            System.exit(CaptureCommand.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        // 已经有常驻实例时把命令交给它，不再启动界面
+        String command = args.length > 0 ? args[0] : "screenshot";
+        List<String> commandArgs = Arrays.asList(args).subList(Math.min(1, args.length), args.length);
+        SingleInstance.Result result = SingleInstance.forwardOrListen(APP_ID, command, commandArgs);
+        if (result == SingleInstance.Result.FORWARDED) {
+            return;
+        }
+        if (result == SingleInstance.Result.FAILED) {
+            System.exit(1);
+        }
         SwingUtilities.invokeLater(() -> {
             try {
                 // 设置系统默认外观
@@ -30,28 +50,65 @@ public class ScreenshotTool {
             } catch (Exception e) {
                 e.printStackTrace();
             }
-            new MainFrame().setVisible(true);
+            mainFrame = new MainFrame();
+            mainFrame.setVisible(true);
         });
+        // 界面的创建已经排进 EDT，之后转发来的命令都会在它之后执行
+        SingleInstance.serve((c, a) -> handleCommand(c));
+        // 第一次启动时也执行命令行中给出的命令
+        if (args.length > 0 && !handleCommand(command)) {
+            System.err.println("Unknown command: " + command);
+        }
+    }
+
+    // 命令排在创建主窗口之后，在 EDT 上执行
+    private static boolean handleCommand(String command) {
+        if (!COMMANDS.contains(command)) {
+            return false;
+        }
+        SwingUtilities.invokeLater(() -> mainFrame.runCommand(command));
+        return true;
     }
 }
 
 // 主窗口类
 class MainFrame extends JFrame {
     private JButton captureButton;
+    private JButton scrollCaptureButton;
     private JButton viewPinnedButton;
     private TrayIcon trayIcon;
     private SystemTray tray;
     private List<PinnedWindow> pinnedWindows = new ArrayList<>();
+    private final PinStore pinStore = PinStore.createDefault(); // 隐藏或最小化钉图的压缩存储
+    private final ExportService exportService = new ExportService();
+    private CaptureService captureService;
+    private ScreenshotHistory history; // 打开失败时为 null，截图照常进行，只是不记录
+    private SimilarityIndex similarityIndex; // 同上
+    private HistoryBrowser historyBrowser;
 
     public MainFrame() {
+        try {
+            history = ScreenshotHistory.openDefault();
+            similarityIndex = SimilarityIndex.openDefault();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
         initComponents();
         initSystemTray();
         registerGlobalHotkey();
+        // 预热截图服务，热键按下时不用再创建 Robot 和覆盖层窗口
+        SwingUtilities.invokeLater(() -> {
+            try {
+                captureService = new CaptureService(this);
+            } catch (AWTException e) {
+                e.printStackTrace();
+            }
+        });
     }
 
     private void initComponents() {
         setTitle("Simple Screenshot Tool");
-        setSize(300, 150);
+        setSize(300, 200);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         setLayout(new FlowLayout(FlowLayout.CENTER, 20, 20));
@@ -61,12 +118,18 @@ class MainFrame extends JFrame {
         captureButton.setPreferredSize(new Dimension(120, 40));
         captureButton.addActionListener(e -> startScreenshot());
 
+        scrollCaptureButton = new JButton("Scroll Capture");
+        scrollCaptureButton.setFont(new Font("Microsoft YaHei", Font.PLAIN, 14));
+        scrollCaptureButton.setPreferredSize(new Dimension(120, 40));
+        scrollCaptureButton.addActionListener(e -> startScrollingCapture());
+
         viewPinnedButton = new JButton("View Pinned");
         viewPinnedButton.setFont(new Font("Microsoft YaHei", Font.PLAIN, 14));
         viewPinnedButton.setPreferredSize(new Dimension(120, 40));
         viewPinnedButton.addActionListener(e -> togglePinnedWindows());
 
         add(captureButton);
+        add(scrollCaptureButton);
         add(viewPinnedButton);
 
         // 添加快捷键支持 (F1)
@@ -101,15 +164,24 @@ class MainFrame extends JFrame {
 
             PopupMenu popup = new PopupMenu();
             MenuItem captureItem = new MenuItem("Capture");
+            MenuItem scrollCaptureItem = new MenuItem("Scroll Capture");
             MenuItem viewPinnedItem = new MenuItem("View Pinned");
+            MenuItem historyItem = new MenuItem("History");
+            MenuItem pinMemoryItem = new MenuItem("Pin Memory Usage");
             MenuItem exitItem = new MenuItem("Exit");
 
             captureItem.addActionListener(e -> startScreenshot());
+            scrollCaptureItem.addActionListener(e -> startScrollingCapture());
             viewPinnedItem.addActionListener(e -> togglePinnedWindows());
+            historyItem.addActionListener(e -> showHistory());
+            pinMemoryItem.addActionListener(e -> showPinMemoryUsage());
             exitItem.addActionListener(e -> System.exit(0));
 
             popup.add(captureItem);
+            popup.add(scrollCaptureItem);
             popup.add(viewPinnedItem);
+            popup.add(historyItem);
+            popup.add(pinMemoryItem);
             popup.addSeparator();
             popup.add(exitItem);
 
@@ -150,15 +222,50 @@ class MainFrame extends JFrame {
         }
     }
 
+    // 执行单实例转发来的命令
+    void runCommand(String command) {
+        switch (command) {
+            case "screenshot":
+                startScreenshot();
+                break;
+            case "scroll":
+                startScrollingCapture();
+                break;
+            case "history":
+                showHistory();
+                break;
+            case "show":
+            default:
+                setVisible(true);
+                setExtendedState(NORMAL);
+                toFront();
+                break;
+        }
+    }
+
     private void startScreenshot() {
-        setVisible(false);
-        // 延迟执行，确保窗口完全隐藏
-        Timer timer = new Timer(300, e -> {
-            dispose();
-            new ScreenshotOverlay(this).setVisible(true);
-        });
-        timer.setRepeats(false);
-        timer.start();
+        startCapture(false);
+    }
+
+    // 先框选区域，再在区域内滚动拼接长截图
+    private void startScrollingCapture() {
+        startCapture(true);
+    }
+
+    private void startCapture(boolean scrolling) {
+        try {
+            if (captureService == null) {
+                captureService = new CaptureService(this);
+            }
+            if (scrolling) {
+                captureService.startScrollingCapture();
+            } else {
+                captureService.startScreenshot();
+            }
+        } catch (AWTException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Screenshot failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
     }
 
     private void togglePinnedWindows() {
@@ -167,37 +274,79 @@ class MainFrame extends JFrame {
         }
     }
 
+    private void showHistory() {
+        if (history == null) {
+            JOptionPane.showMessageDialog(this, "Screenshot history is not available", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (historyBrowser == null) {
+            historyBrowser = new HistoryBrowser(this, history, similarityIndex);
+        } else {
+            historyBrowser.reload();
+        }
+        historyBrowser.setVisible(true);
+        historyBrowser.toFront();
+    }
+
+    private void showPinMemoryUsage() {
+        JOptionPane.showMessageDialog(this, pinStore.getUsageReport(), "Pin Memory Usage", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // 自动记入截图历史，新内容存好后用历史记录中的 dHash 加入相似度索引；monitor 为来源显示器，未知时为 null
+    public void recordCapture(BufferedImage image, String monitor) {
+        if (history == null) {
+            return;
+        }
+        history.record(image, monitor, entry -> {
+            if (similarityIndex != null) {
+                similarityIndex.add(entry.getDHash(), SimilarityIndex.HISTORY_PREFIX + entry.getHash());
+            }
+        });
+    }
+
     public void addPinnedWindow(PinnedWindow window) {
         pinnedWindows.add(window);
     }
+
+    public void removePinnedWindow(PinnedWindow window) {
+        pinnedWindows.remove(window);
+    }
+
+    public PinStore getPinStore() {
+        return pinStore;
+    }
+
+    public ExportService getExportService() {
+        return exportService;
+    }
+
+    public ScreenshotHistory getHistory() {
+        return history;
+    }
+
+    public SimilarityIndex getSimilarityIndex() {
+        return similarityIndex;
+    }
 }
 
-// 截图覆盖层类 - 改进以支持多显示器
+// 截图覆盖层类 - 改进以支持多显示器，由 CaptureService 创建一次后反复使用
 class ScreenshotOverlay extends JFrame {
     MainFrame mainFrame;
+    private final CaptureService captureService;
+    private CapturedScreen capturedScreen;
     private BufferedImage screenImage;
+    private boolean scrolling; // 选区用于滚动长截图
     private SelectionPanel selectionPanel;
     private Rectangle allScreensBounds; // 所有屏幕的组合边界
 
-    public ScreenshotOverlay(MainFrame mainFrame) {
+    public ScreenshotOverlay(MainFrame mainFrame, CaptureService captureService) {
         this.mainFrame = mainFrame;
+        this.captureService = captureService;
         initComponents();
-        captureScreen();
     }
 
     private void initComponents() {
         setUndecorated(true);
-        // 获取所有屏幕的真实像素边界（已修复的逻辑）
-        allScreensBounds = getAdjustedScreenBounds();
-        // 修复：窗口大小严格等于截图的原始像素尺寸（避免系统缩放影响）
-        setSize(allScreensBounds.width, allScreensBounds.height);
-        // 窗口位置严格对齐屏幕左上角（像素坐标）
-        setLocation(allScreensBounds.x, allScreensBounds.y);
-        // 禁用窗口的自动缩放（针对高DPI屏幕）
-        if (System.getProperty("java.version").compareTo("9") >= 0) {
-            setPreferredSize(new Dimension(allScreensBounds.width, allScreensBounds.height));
-        }
-
         setBackground(new Color(0, 0, 0, 128));
 
         selectionPanel = new SelectionPanel(this);
@@ -208,71 +357,92 @@ class ScreenshotOverlay extends JFrame {
             @Override
             public void keyPressed(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
-                    dispose();
-                    mainFrame.setVisible(true);
+                    cancel();
                 }
             }
         });
     }
 
-    // 修复：正确计算多显示器组合边界（保留实际起始坐标）
-    private Rectangle getAdjustedScreenBounds() {
-        GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-        Rectangle bounds = new Rectangle();
-
-        for (GraphicsDevice gd : ge.getScreenDevices()) {
-            for (GraphicsConfiguration config : gd.getConfigurations()) {
-                // 合并所有屏幕边界，保留实际minX、minY（关键）
-                bounds = bounds.union(config.getBounds());
-            }
+    // 设置覆盖层的位置和大小（显示器配置变化时重新调用）
+    public void setScreenBounds(Rectangle bounds) {
+        allScreensBounds = bounds;
+        // 修复：窗口大小严格等于截图的原始像素尺寸（避免系统缩放影响）
+        setSize(allScreensBounds.width, allScreensBounds.height);
+        // 窗口位置严格对齐屏幕左上角（像素坐标）
+        setLocation(allScreensBounds.x, allScreensBounds.y);
+        // 禁用窗口的自动缩放（针对高DPI屏幕）
+        if (System.getProperty("java.version").compareTo("9") >= 0) {
+            setPreferredSize(new Dimension(allScreensBounds.width, allScreensBounds.height));
         }
+    }
 
-        // 直接返回实际组合边界，不强制重置为(0,0)
-        return bounds;
+    // 显示新捕获的屏幕图像；scrolling 为 true 时选好的区域用于滚动长截图
+    public void activate(CapturedScreen captured, boolean scrolling) {
+        this.scrolling = scrolling;
+        capturedScreen = captured;
+        screenImage = captured.getImage();
+        selectionPanel.reset();
+        selectionPanel.setScreenImage(screenImage);
+        setVisible(true);
+        toFront();
+        requestFocus();
+        repaint();
     }
 
-    // 获取所有屏幕的组合边界
-    private Rectangle getCombinedScreenBounds() {
-        GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-        GraphicsDevice[] screens = ge.getScreenDevices();
+    void firstPaint() {
+        captureService.overlayPainted();
+    }
 
-        int minX = Integer.MAX_VALUE;
-        int minY = Integer.MAX_VALUE;
-        int maxX = Integer.MIN_VALUE;
-        int maxY = Integer.MIN_VALUE;
+    // 取消截图，恢复主窗口
+    public void cancel() {
+        close();
+        mainFrame.setVisible(true);
+    }
 
-        for (GraphicsDevice screen : screens) {
-            GraphicsConfiguration gc = screen.getDefaultConfiguration();
-            Rectangle bounds = gc.getBounds();
+    private void close() {
+        // 只隐藏窗口，保留原生资源供下次使用
+        setVisible(false);
+        selectionPanel.setScreenImage(null);
+        capturedScreen = null;
+        screenImage = null;
+        captureService.finish();
+    }
 
-            minX = Math.min(minX, bounds.x);
-            minY = Math.min(minY, bounds.y);
-            maxX = Math.max(maxX, bounds.x + bounds.width);
-            maxY = Math.max(maxY, bounds.y + bounds.height);
+    public void finishSelection(Rectangle selectionRect) {
+        Rectangle rect = selectionRect.intersection(new Rectangle(screenImage.getWidth(), screenImage.getHeight()));
+        // 按选区中心所在的显示器记录来源
+        CapturedScreen.MonitorRegion monitor = capturedScreen.monitorAt((int) rect.getCenterX(), (int) rect.getCenterY());
+        String deviceId = monitor != null ? monitor.getDeviceId() : null;
+
+        if (scrolling) {
+            // 选区换算成屏幕坐标，覆盖层隐藏后开始反复捕获这个区域
+            Rectangle screenBounds = capturedScreen.getScreenBounds();
+            Rectangle region = new Rectangle(rect.x + screenBounds.x, rect.y + screenBounds.y, rect.width, rect.height);
+            close();
+            try {
+                new ScrollCaptureSession(mainFrame, region, deviceId).start();
+            } catch (AWTException e) {
+                e.printStackTrace();
+                JOptionPane.showMessageDialog(null, "Scrolling capture failed: " + e.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                mainFrame.setVisible(true);
+            }
+            return;
         }
 
-        return new Rectangle(minX, minY, maxX - minX, maxY - minY);
-    }
-
-    private void captureScreen() {
-        try {
-            Robot robot = new Robot();
+        // 截图缓冲区会被下一次截图复用，这里把选中区域复制出来
+        BufferedImage image = new BufferedImage(rect.width, rect.height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.drawImage(screenImage, -rect.x, -rect.y, null);
+        g2d.dispose();
 
-            // 捕获所有屏幕的组合区域（使用调整后的边界）
-            screenImage = robot.createScreenCapture(allScreensBounds);
-            selectionPanel.setScreenImage(screenImage);
-            repaint();
-        } catch (AWTException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Screenshot failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            dispose();
-            mainFrame.setVisible(true);
-        }
+        mainFrame.recordCapture(image, deviceId);
+        close();
+        new EditFrame(mainFrame, image, new Rectangle(0, 0, rect.width, rect.height)).setVisible(true);
     }
 
-    public void finishSelection(Rectangle selectionRect) {
-        dispose();
-        new EditFrame(mainFrame, screenImage, selectionRect).setVisible(true);
+    public CapturedScreen getCapturedScreen() {
+        return capturedScreen;
     }
 }
 
@@ -280,13 +450,16 @@ class ScreenshotOverlay extends JFrame {
 class SelectionPanel extends JPanel {
     private ScreenshotOverlay parent;
     private BufferedImage screenImage;
+    private final SelectionRenderer renderer;
     private Rectangle selectionRect = new Rectangle();
     private Point startPoint = null;
     private Point endPoint = null;
     private boolean isSelecting = false;
+    private boolean painted = false; // 本次截图是否已完成第一次绘制
 
     public SelectionPanel(ScreenshotOverlay parent) {
         this.parent = parent;
+        this.renderer = new SelectionRenderer(getFont());
         setOpaque(false);
 
         addMouseListener(new MouseAdapter() {
@@ -305,8 +478,7 @@ class SelectionPanel extends JPanel {
                     if (selectionRect.width > 5 && selectionRect.height > 5) {
                         parent.finishSelection(selectionRect);
                     } else {
-                        parent.dispose();
-                        parent.mainFrame.setVisible(true);
+                        parent.cancel();
                     }
                 }
             }
@@ -316,9 +488,17 @@ class SelectionPanel extends JPanel {
             @Override
             public void mouseDragged(MouseEvent e) {
                 if (isSelecting) {
+                    Rectangle oldDirty = renderer.getDirtyBounds(selectionRect);
                     endPoint = e.getPoint();
                     updateSelectionRect();
-                    repaint();
+                    Rectangle newDirty = renderer.getDirtyBounds(selectionRect);
+                    if (oldDirty.isEmpty() || newDirty.isEmpty()) {
+                        // 选择框出现或消失时整个背景在变暗和原图之间切换，需要全部重绘
+                        repaint();
+                    } else {
+                        // 只重绘选择框新旧位置的并集
+                        repaint(oldDirty.union(newDirty));
+                    }
                 }
             }
         });
@@ -326,6 +506,16 @@ class SelectionPanel extends JPanel {
 
     public void setScreenImage(BufferedImage image) {
         this.screenImage = image;
+        renderer.setScreenImage(image);
+    }
+
+    // 清除上一次截图留下的选择状态
+    public void reset() {
+        selectionRect.setBounds(0, 0, 0, 0);
+        startPoint = null;
+        endPoint = null;
+        isSelecting = false;
+        painted = false;
     }
 
     private void updateSelectionRect() {
@@ -339,51 +529,28 @@ class SelectionPanel extends JPanel {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        if (screenImage != null) {
-            // 修复：按原始尺寸绘制，不拉伸（0,0为起点，使用图像自身宽高）
-            g.drawImage(screenImage, 0, 0, screenImage.getWidth(), screenImage.getHeight(), this);
-        }
-        // （以下选择框绘制逻辑保持不变）
-        if (isSelecting && selectionRect.width > 0 && selectionRect.height > 0) {
-            // 绘制选择区域
-            Graphics2D g2d = (Graphics2D) g;
-
-            // 绘制半透明背景
-            g2d.setColor(new Color(0, 0, 0, 100));
-            g2d.fillRect(0, 0, getWidth(), selectionRect.y);
-            g2d.fillRect(0, selectionRect.y, selectionRect.x, selectionRect.height);
-            g2d.fillRect(selectionRect.x + selectionRect.width, selectionRect.y,
-                    getWidth() - selectionRect.x - selectionRect.width, selectionRect.height);
-            g2d.fillRect(0, selectionRect.y + selectionRect.height, getWidth(),
-                    getHeight() - selectionRect.y - selectionRect.height);
-
-            // 绘制选择框边框
-            g2d.setColor(Color.RED);
-            g2d.setStroke(new BasicStroke(2));
-            g2d.drawRect(selectionRect.x, selectionRect.y, selectionRect.width, selectionRect.height);
-
-            // 绘制尺寸信息
-            String sizeInfo = selectionRect.width + " x " + selectionRect.height;
-            g2d.setColor(Color.WHITE);
-            g2d.fillRect(selectionRect.x, selectionRect.y - 20, g2d.getFontMetrics().stringWidth(sizeInfo) + 10, 20);
-            g2d.setColor(Color.BLACK);
-            g2d.drawString(sizeInfo, selectionRect.x + 5, selectionRect.y - 5);
+        // 修复：按原始尺寸绘制，不拉伸；只会复制裁剪区域内的像素
+        renderer.paint((Graphics2D) g, isSelecting ? selectionRect : null);
+        if (!painted && screenImage != null) {
+            painted = true;
+            parent.firstPaint();
         }
     }
 }
 
 // 编辑窗口类
 class EditFrame extends JFrame {
+    private static final int REPAINT_MARGIN = 12; // 形状边界不含线宽和抗锯齿，重绘时向外扩展
     private MainFrame mainFrame;
     private BufferedImage originalImage;
-    private BufferedImage editedImage;
+    private BufferedImage editedImage; // 原图加上所有已提交的形状，增量更新
     private EditPanel editPanel;
     private JToolBar toolBar;
-    private JButton saveButton, copyButton, pinButton, closeButton, undoButton, eraserButton;
+    private JButton saveButton, copyButton, pinButton, closeButton, undoButton, redoButton, eraserButton;
     private JButton rectangleButton, circleButton, lineButton, arrowButton, textButton;
     private JComboBox<String> colorComboBox;
     private JSpinner strokeSpinner, eraserSizeSpinner;
-    private List<Shape> shapes = new ArrayList<>();
+    private ShapeStore shapes = new ShapeStore();
     private Shape currentShape = null;
     private Point startPoint = null;
     private Point endPoint = null;
@@ -391,8 +558,7 @@ class EditFrame extends JFrame {
     private Color currentColor = Color.RED;
     private int currentStroke = 2;
     private int currentEraserSize = 20; // 橡皮擦大小
-    private Stack<List<Shape>> historyStack = new Stack<>();
-    private static final int MAX_HISTORY = 100; // 最多可撤销100次
+    private ShapeHistory history = new ShapeHistory();
 
     public EditFrame(MainFrame mainFrame, BufferedImage screenImage, Rectangle selectionRect) {
         this.mainFrame = mainFrame;
@@ -438,6 +604,16 @@ class EditFrame extends JFrame {
                 undo();
             }
         });
+
+        // Ctrl+Y快捷键
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+                KeyStroke.getKeyStroke(KeyEvent.VK_Y, KeyEvent.CTRL_DOWN_MASK), "redo");
+        getRootPane().getActionMap().put("redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                redo();
+            }
+        });
     }
 
     private void createToolBar() {
@@ -447,6 +623,9 @@ class EditFrame extends JFrame {
         undoButton = new JButton("Undo");
         undoButton.addActionListener(e -> undo());
 
+        redoButton = new JButton("Redo");
+        redoButton.addActionListener(e -> redo());
+
         saveButton = new JButton("Save");
         saveButton.addActionListener(e -> saveImage());
 
@@ -488,6 +667,7 @@ class EditFrame extends JFrame {
         eraserSizeSpinner.addChangeListener(e -> currentEraserSize = (int) eraserSizeSpinner.getValue());
 
         toolBar.add(undoButton);
+        toolBar.add(redoButton);
         toolBar.addSeparator();
         toolBar.add(saveButton);
         toolBar.add(copyButton);
@@ -543,76 +723,140 @@ class EditFrame extends JFrame {
         }
     }
 
-    private void saveHistory() {
-        if (historyStack.size() >= MAX_HISTORY) {
-            historyStack.remove(0);
+    private void undo() {
+        redrawShapes(history.undo(shapes));
+    }
+
+    private void redo() {
+        redrawShapes(history.redo(shapes));
+    }
+
+    // 撤销/重做后只重绘受影响形状所在的区域
+    private void redrawShapes(List<Shape> affected) {
+        Rectangle region = null;
+        for (Shape shape : affected) {
+            Rectangle bounds = getRepaintBounds(shape);
+            region = region == null ? bounds : region.union(bounds);
+        }
+        if (region != null) {
+            redrawLayer(region);
+            editPanel.repaint(region);
         }
-        historyStack.push(new ArrayList<>(shapes));
     }
 
-    private void undo() {
-        if (!historyStack.isEmpty()) {
-            shapes = historyStack.pop();
-            editPanel.repaint();
+    // 提交一个形状：加入列表、记录历史，并直接画到已提交图层上
+    private void commitShape(Shape shape) {
+        history.add(shapes, shape);
+        Graphics2D g2d = editedImage.createGraphics();
+        shape.draw(g2d);
+        g2d.dispose();
+        editPanel.repaint(getRepaintBounds(shape));
+    }
+
+    // 重新绘制已提交图层的某个区域（null 表示全部），用于擦除和撤销
+    private void redrawLayer(Rectangle region) {
+        Graphics2D g2d = editedImage.createGraphics();
+        if (region != null) {
+            g2d.clip(region);
+        }
+        g2d.drawImage(originalImage, 0, 0, null);
+        Collection<Shape> visible = shapes.all();
+        if (region != null) {
+            // 只取重绘区域附近的形状，按绘制顺序重画
+            Rectangle area = new Rectangle(region);
+            area.grow(REPAINT_MARGIN, REPAINT_MARGIN);
+            visible = shapes.query(area);
+        }
+        for (Shape shape : visible) {
+            shape.draw(g2d);
         }
+        g2d.dispose();
+    }
+
+    private static Rectangle getRepaintBounds(Shape shape) {
+        Rectangle bounds = shape.getBounds();
+        bounds.grow(REPAINT_MARGIN, REPAINT_MARGIN);
+        return bounds;
+    }
+
+    // 复制一份包含所有形状的图像
+    private BufferedImage copyEditedImage() {
+        BufferedImage copy = new BufferedImage(editedImage.getWidth(), editedImage.getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = copy.createGraphics();
+        g2d.drawImage(editedImage, 0, 0, null);
+        g2d.dispose();
+        return copy;
     }
 
     private void saveImage() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Save Screenshot");
-        fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
-            @Override
-            public boolean accept(File f) {
-                return f.isDirectory() || f.getName().toLowerCase().endsWith(".png");
-            }
+        fileChooser.setAcceptAllFileFilterUsed(false);
+        Map<javax.swing.filechooser.FileFilter, ImageExporter.Format> filters = new LinkedHashMap<>();
+        for (ImageExporter.Format format : ImageExporter.Format.values()) {
+            javax.swing.filechooser.FileFilter filter = new javax.swing.filechooser.FileFilter() {
+                @Override
+                public boolean accept(File f) {
+                    return f.isDirectory() || ImageExporter.Format.fromFileName(f.getName()) == format;
+                }
 
-            @Override
-            public String getDescription() {
-                return "PNG Image (*.png)";
-            }
-        });
+                @Override
+                public String getDescription() {
+                    return format.getDescription();
+                }
+            };
+            filters.put(filter, format);
+            fileChooser.addChoosableFileFilter(filter);
+        }
+        fileChooser.setFileFilter(filters.keySet().iterator().next());
+
+        // 编码参数
+        JSlider pngLevelSlider = new JSlider(0, 9, ImageExporter.DEFAULT_PNG_LEVEL);
+        pngLevelSlider.setMajorTickSpacing(3);
+        pngLevelSlider.setPaintTicks(true);
+        pngLevelSlider.setPaintLabels(true);
+        JSlider jpegQualitySlider = new JSlider(0, 100, (int) (ImageExporter.DEFAULT_JPEG_QUALITY * 100));
+        jpegQualitySlider.setMajorTickSpacing(25);
+        jpegQualitySlider.setPaintTicks(true);
+        jpegQualitySlider.setPaintLabels(true);
+        JPanel optionsPanel = new JPanel(new GridLayout(4, 1));
+        optionsPanel.setBorder(BorderFactory.createTitledBorder("Options"));
+        optionsPanel.add(new JLabel("PNG compression level:"));
+        optionsPanel.add(pngLevelSlider);
+        optionsPanel.add(new JLabel("JPEG quality:"));
+        optionsPanel.add(jpegQualitySlider);
+        fileChooser.setAccessory(optionsPanel);
 
         int result = fileChooser.showSaveDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
-            if (!file.getName().toLowerCase().endsWith(".png")) {
-                file = new File(file.getParentFile(), file.getName() + ".png");
+            // 文件名里的扩展名优先，没有时按选中的过滤器补上
+            ImageExporter.Format format = ImageExporter.Format.fromFileName(file.getName());
+            if (format == null) {
+                format = filters.get(fileChooser.getFileFilter());
+                file = new File(file.getParentFile(), file.getName() + "." + format.getExtension());
             }
 
-            try {
-                // 合并所有形状到图像
-                Graphics2D g2d = editedImage.createGraphics();
-                g2d.drawImage(originalImage, 0, 0, null);
-                for (Shape shape : shapes) {
-                    shape.draw(g2d);
+            ImageExporter exporter = new ImageExporter(format, pngLevelSlider.getValue(),
+                    jpegQualitySlider.getValue() / 100.0f);
+            // 已提交图层已经包含所有形状，复制一份快照交给后台编码，编辑可以继续
+            BufferedImage snapshot = copyEditedImage();
+            File target = file;
+            mainFrame.getExportService().export(this, snapshot, file, exporter, () -> {
+                // 导出的图片也加入相似度索引
+                SimilarityIndex similarityIndex = mainFrame.getSimilarityIndex();
+                if (similarityIndex != null) {
+                    similarityIndex.add(snapshot, SimilarityIndex.FILE_PREFIX + target.getAbsolutePath());
                 }
-                g2d.dispose();
-
-                ImageIO.write(editedImage, "PNG", file);
-                JOptionPane.showMessageDialog(this, "Screenshot saved to: " + file.getAbsolutePath(),
-                        "Save Successful", JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(this, "Save failed: " + e.getMessage(),
-                        "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            });
         }
     }
 
     private void copyToClipboard() {
         try {
-            // 合并所有形状到图像
-            BufferedImage copiedImage = new BufferedImage(editedImage.getWidth(), editedImage.getHeight(),
-                    BufferedImage.TYPE_INT_RGB);
-            Graphics2D g2d = copiedImage.createGraphics();
-            g2d.drawImage(originalImage, 0, 0, null);
-            for (Shape shape : shapes) {
-                shape.draw(g2d);
-            }
-            g2d.dispose();
-
-            // 创建剪贴板图像
-            Transferable transferable = new TransferableImage(copiedImage);
+            // 只记下原图和已提交的形状，粘贴时才按请求的格式生成数据
+            Transferable transferable = new LazyImageTransferable(originalImage, shapes.all());
             Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
             clipboard.setContents(transferable, null);
 
@@ -625,44 +869,10 @@ class EditFrame extends JFrame {
         }
     }
 
-    private class TransferableImage implements Transferable {
-        private BufferedImage image;
-
-        public TransferableImage(BufferedImage image) {
-            this.image = image;
-        }
-
-        @Override
-        public DataFlavor[] getTransferDataFlavors() {
-            return new DataFlavor[]{DataFlavor.imageFlavor};
-        }
-
-        @Override
-        public boolean isDataFlavorSupported(DataFlavor flavor) {
-            return DataFlavor.imageFlavor.equals(flavor);
-        }
-
-        @Override
-        public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
-            if (isDataFlavorSupported(flavor)) {
-                return image;
-            }
-            throw new UnsupportedFlavorException(flavor);
-        }
-    }
-
     private void pinImage() {
-        // 合并所有形状到图像
-        BufferedImage pinnedImage = new BufferedImage(editedImage.getWidth(), editedImage.getHeight(),
-                BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = pinnedImage.createGraphics();
-        g2d.drawImage(originalImage, 0, 0, null);
-        for (Shape shape : shapes) {
-            shape.draw(g2d);
-        }
-        g2d.dispose();
+        BufferedImage pinnedImage = copyEditedImage();
 
-        PinnedWindow pinnedWindow = new PinnedWindow(pinnedImage);
+        PinnedWindow pinnedWindow = new PinnedWindow(mainFrame, pinnedImage);
         mainFrame.addPinnedWindow(pinnedWindow);
         pinnedWindow.setVisible(true);
 
@@ -684,8 +894,7 @@ class EditFrame extends JFrame {
                     if (textField != null) {
                         String text = textField.getText();
                         if (!text.isEmpty()) {
-                            shapes.add(new TextShape(textField.getLocation(), text, currentColor, 14));
-                            saveHistory(); // 保存历史记录
+                            commitShape(new TextShape(textField.getLocation(), text, currentColor, 14));
                         }
                         remove(textField);
                         textField = null;
@@ -697,9 +906,10 @@ class EditFrame extends JFrame {
                     if (currentTool.equals("text")) {
                         createTextField(e.getPoint());
                     } else if (currentTool.equals("eraser")) {
+                        // 一次拖动擦除的所有形状作为一次撤销
+                        history.beginGroup();
                         eraseShapes(e.getPoint());
                     } else {
-                        saveHistory(); // 保存历史记录
                         switch (currentTool) {
                             case "rectangle":
                                 currentShape = new RectangleShape(startPoint, currentColor, currentStroke);
@@ -714,7 +924,7 @@ class EditFrame extends JFrame {
                                 currentShape = new ArrowShape(startPoint, currentColor, currentStroke);
                                 break;
                         }
-                        shapes.add(currentShape);
+                        // 拖动中的形状在松开鼠标后才提交到图层
                     }
                 }
 
@@ -723,9 +933,11 @@ class EditFrame extends JFrame {
                     if (currentShape != null && !currentTool.equals("text") && !currentTool.equals("eraser")) {
                         endPoint = e.getPoint();
                         currentShape.setEndPoint(endPoint);
-                        saveHistory(); // 保存历史记录
+                        Shape shape = currentShape;
                         currentShape = null;
-                        repaint();
+                        commitShape(shape);
+                    } else if (currentTool.equals("eraser")) {
+                        history.endGroup();
                     }
                 }
             });
@@ -734,9 +946,11 @@ class EditFrame extends JFrame {
                 @Override
                 public void mouseDragged(MouseEvent e) {
                     if (currentShape != null && !currentTool.equals("text") && !currentTool.equals("eraser")) {
+                        Rectangle oldBounds = getRepaintBounds(currentShape);
                         endPoint = e.getPoint();
                         currentShape.setEndPoint(endPoint);
-                        repaint();
+                        // 只重绘拖动中形状的新旧位置
+                        repaint(oldBounds.union(getRepaintBounds(currentShape)));
                     } else if (currentTool.equals("eraser")) {
                         eraseShapes(e.getPoint());
                     }
@@ -760,8 +974,7 @@ class EditFrame extends JFrame {
             textField.addActionListener(e -> {
                 String text = textField.getText();
                 if (!text.isEmpty()) {
-                    shapes.add(new TextShape(point, text, currentColor, 14));
-                    saveHistory(); // 保存历史记录
+                    commitShape(new TextShape(point, text, currentColor, 14));
                 }
                 remove(textField);
                 textField = null;
@@ -775,8 +988,7 @@ class EditFrame extends JFrame {
                     if (textField != null) {
                         String text = textField.getText();
                         if (!text.isEmpty()) {
-                            shapes.add(new TextShape(point, text, currentColor, 14));
-                            saveHistory(); // 保存历史记录
+                            commitShape(new TextShape(point, text, currentColor, 14));
                         }
                         remove(textField);
                         textField = null;
@@ -794,28 +1006,19 @@ class EditFrame extends JFrame {
             int size = currentEraserSize;
             Rectangle eraseRect = new Rectangle(point.x - size / 2, point.y - size / 2, size, size);
 
-            List<Shape> newShapes = new ArrayList<>();
-            for (Shape shape : shapes) {
-                if (!shape.getBounds().intersects(eraseRect)) {
-                    newShapes.add(shape);
-                }
-            }
-
-            shapes = newShapes;
-            saveHistory(); // 保存历史记录
-            repaint();
+            // 只重绘被擦除形状覆盖的区域
+            redrawShapes(history.removeIntersecting(shapes, eraseRect));
         }
 
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
 
-            if (originalImage != null) {
-                g.drawImage(originalImage, 0, 0, this);
-            }
+            // 原图和已提交的形状都在图层里，只需复制裁剪区域
+            g.drawImage(editedImage, 0, 0, this);
 
-            for (Shape shape : shapes) {
-                shape.draw((Graphics2D) g);
+            if (currentShape != null) {
+                currentShape.draw((Graphics2D) g);
             }
         }
     }
@@ -823,10 +1026,16 @@ class EditFrame extends JFrame {
 
 // 钉图窗口类
 class PinnedWindow extends JFrame {
-    private BufferedImage originalImage;
-    private BufferedImage editedImage;
-    private BufferedImage scaledImage; // 声明scaledImage
-    private JLabel imageLabel;
+    private static final int REPAINT_MARGIN = 12; // 形状边界不含线宽，重绘时向外扩展
+    private final MainFrame mainFrame;
+    private final PinStore pinStore;
+    private final int imageWidth;
+    private final int imageHeight;
+    private BufferedImage originalImage; // 压缩存储后为 null，重新显示时解压
+    private long pinId = -1; // 底图在 PinStore 中的编号，底图不再变化，压缩一次后一直复用
+    private boolean storing = false; // 已经交给 PinStore 压缩，回调还没到；期间不再重复压缩
+    private boolean releaseWhenStored = false; // 压缩完成时释放堆上的底图，重新显示时取消
+    private ZoomView zoomView; // 缩放显示底图，标注作为矢量图层绘制在上面
     private boolean isMaximized = false;
     private Dimension originalSize;
     private Point startDrag = null;
@@ -835,7 +1044,7 @@ class PinnedWindow extends JFrame {
     private final double MAX_SCALE = 5.0;
 
     // 编辑相关变量
-    private List<Shape> shapes = new ArrayList<>();
+    private ShapeStore shapes = new ShapeStore();
     private Shape currentShape = null;
     private String currentTool = "rectangle";
     private Color currentColor = Color.RED;
@@ -844,18 +1053,94 @@ class PinnedWindow extends JFrame {
     private boolean isEditing = false;
     private JToolBar editToolbar;
 
-    // 历史记录用于撤销
-    private Stack<List<Shape>> historyStack = new Stack<>();
-    private static final int MAX_HISTORY = 100;
+    // 历史记录用于撤销/重做
+    private ShapeHistory history = new ShapeHistory();
 
-    public PinnedWindow(BufferedImage image) {
+    public PinnedWindow(MainFrame mainFrame, BufferedImage image) {
+        this.mainFrame = mainFrame;
+        this.pinStore = mainFrame.getPinStore();
         this.originalImage = image;
-        this.editedImage = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
-        Graphics2D g2d = editedImage.createGraphics();
-        g2d.drawImage(image, 0, 0, null);
-        g2d.dispose();
-        this.scaledImage = editedImage; // 初始化scaledImage
+        this.imageWidth = image.getWidth();
+        this.imageHeight = image.getHeight();
         initComponents();
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowIconified(WindowEvent e) {
+                dehydrate();
+            }
+
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                rehydrate();
+            }
+
+            @Override
+            public void windowClosed(WindowEvent e) {
+                releaseWhenStored = false;
+                if (pinId >= 0) {
+                    pinStore.remove(pinId);
+                    pinId = -1;
+                }
+                mainFrame.removePinnedWindow(PinnedWindow.this);
+            }
+        });
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        if (visible) {
+            rehydrate();
+        }
+        super.setVisible(visible);
+        if (!visible && isDisplayable()) {
+            dehydrate();
+        }
+    }
+
+    // 窗口隐藏或最小化后把底图压缩到 PinStore，释放堆上的完整图像和缩放缓冲区
+    private void dehydrate() {
+        if (originalImage == null) {
+            return;
+        }
+        if (pinId >= 0) {
+            releaseImage();
+            return;
+        }
+        releaseWhenStored = true;
+        if (storing) {
+            // 上一次的压缩还没完成（期间恢复过又最小化），等它的回调
+            return;
+        }
+        storing = true;
+        pinStore.store(originalImage, id -> {
+            storing = false;
+            if (!isDisplayable()) {
+                // 压缩期间窗口已关闭
+                pinStore.remove(id);
+                return;
+            }
+            pinId = id;
+            setIconImage(pinStore.getThumbnail(id));
+            if (releaseWhenStored) {
+                releaseWhenStored = false;
+                releaseImage();
+            }
+        });
+    }
+
+    private void releaseImage() {
+        originalImage = null;
+        zoomView.releaseImage();
+    }
+
+    // 重新显示前解压底图；压缩还没完成时只取消释放，图像仍在堆上，压缩结果照常保存
+    private void rehydrate() {
+        releaseWhenStored = false;
+        if (originalImage == null && pinId >= 0) {
+            originalImage = pinStore.load(pinId);
+            zoomView.setImage(originalImage);
+        }
     }
 
     private void initComponents() {
@@ -896,12 +1181,13 @@ class PinnedWindow extends JFrame {
         titleBar.add(closeButton);
 
         // 创建图像面板
-        imageLabel = new JLabel(new ImageIcon(scaledImage));
-        JScrollPane scrollPane = new JScrollPane(imageLabel);
+        zoomView = new ZoomView(originalImage);
+        zoomView.setOverlay(this::paintAnnotations);
+        JScrollPane scrollPane = new JScrollPane(zoomView);
         scrollPane.setBorder(BorderFactory.createLineBorder(Color.BLACK, 1));
 
         // 添加鼠标监听器用于编辑
-        imageLabel.addMouseListener(new MouseAdapter() {
+        zoomView.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
                 if (!isEditing) return;
@@ -912,9 +1198,10 @@ class PinnedWindow extends JFrame {
                 if (currentTool.equals("text")) {
                     createTextField(imagePoint);
                 } else if (currentTool.equals("eraser")) {
+                    // 一次拖动擦除的所有形状作为一次撤销
+                    history.beginGroup();
                     eraseShapes(imagePoint);
                 } else {
-                    saveHistory(); // 保存历史记录
                     switch (currentTool) {
                         case "rectangle":
                             currentShape = new RectangleShape(imagePoint, currentColor, currentStroke);
@@ -929,29 +1216,43 @@ class PinnedWindow extends JFrame {
                             currentShape = new ArrowShape(imagePoint, currentColor, currentStroke);
                             break;
                     }
-                    addShape(currentShape);
                 }
             }
 
             @Override
             public void mouseReleased(MouseEvent e) {
-                if (!isEditing || currentShape == null) return;
+                if (!isEditing) return;
+                if (currentTool.equals("eraser")) {
+                    history.endGroup();
+                    return;
+                }
+                if (currentShape == null) return;
 
                 Point imagePoint = convertToImageCoordinates(e.getPoint());
+                Rectangle oldBounds = getRepaintBounds(currentShape);
                 currentShape.setEndPoint(imagePoint);
+                // 拖动中的形状在松开鼠标后才加入列表
+                addShape(currentShape);
+                repaintShapeMove(oldBounds, currentShape);
                 currentShape = null;
-                updateImage();
             }
         });
 
-        imageLabel.addMouseMotionListener(new MouseMotionAdapter() {
+        zoomView.addMouseMotionListener(new MouseMotionAdapter() {
             @Override
             public void mouseDragged(MouseEvent e) {
-                if (!isEditing || currentShape == null) return;
+                if (!isEditing) return;
+                if (currentTool.equals("eraser")) {
+                    eraseShapes(convertToImageCoordinates(e.getPoint()));
+                    return;
+                }
+                if (currentShape == null) return;
 
                 Point imagePoint = convertToImageCoordinates(e.getPoint());
+                Rectangle oldBounds = getRepaintBounds(currentShape);
                 currentShape.setEndPoint(imagePoint);
-                updateImage();
+                // 只重绘拖动中形状的新旧位置
+                repaintShapeMove(oldBounds, currentShape);
             }
         });
 
@@ -1013,6 +1314,8 @@ class PinnedWindow extends JFrame {
             public void keyPressed(KeyEvent e) {
                 if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_Z) {
                     undo();
+                } else if (e.isControlDown() && e.getKeyCode() == KeyEvent.VK_Y) {
+                    redo();
                 }
             }
         });
@@ -1026,6 +1329,9 @@ class PinnedWindow extends JFrame {
         JButton undoButton = new JButton("Undo");
         undoButton.addActionListener(e -> undo());
 
+        JButton redoButton = new JButton("Redo");
+        redoButton.addActionListener(e -> redo());
+
         JButton rectangleButton = new JButton("Rectangle");
         rectangleButton.addActionListener(e -> setCurrentTool("rectangle"));
 
@@ -1074,6 +1380,7 @@ class PinnedWindow extends JFrame {
         eraserSizeSpinner.addChangeListener(e -> currentEraserSize = (int) eraserSizeSpinner.getValue());
 
         editToolbar.add(undoButton);
+        editToolbar.add(redoButton);
         editToolbar.addSeparator();
         editToolbar.add(rectangleButton);
         editToolbar.add(circleButton);
@@ -1110,21 +1417,15 @@ class PinnedWindow extends JFrame {
     }
 
     private void addShape(Shape shape) {
-        shapes.add(shape);
+        history.add(shapes, shape);
     }
 
-    private void saveHistory() {
-        if (historyStack.size() >= MAX_HISTORY) {
-            historyStack.remove(0);
-        }
-        historyStack.push(new ArrayList<>(shapes));
+    private void undo() {
+        repaintShapes(history.undo(shapes));
     }
 
-    private void undo() {
-        if (!historyStack.isEmpty()) {
-            shapes = historyStack.pop();
-            updateImage();
-        }
+    private void redo() {
+        repaintShapes(history.redo(shapes));
     }
 
     private void createTextField(Point point) {
@@ -1139,16 +1440,15 @@ class PinnedWindow extends JFrame {
         Point componentPoint = convertToComponentCoordinates(point);
         textField.setLocation(componentPoint);
 
-        imageLabel.add(textField);
+        zoomView.add(textField);
 
         textField.addActionListener(e -> {
             String text = textField.getText();
             if (!text.isEmpty()) {
                 addShape(new TextShape(point, text, currentColor, 14));
-                saveHistory(); // 保存历史记录
             }
-            imageLabel.remove(textField);
-            updateImage();
+            zoomView.remove(textField);
+            zoomView.repaint();
         });
 
         textField.addFocusListener(new FocusAdapter() {
@@ -1157,39 +1457,29 @@ class PinnedWindow extends JFrame {
                 String text = textField.getText();
                 if (!text.isEmpty()) {
                     addShape(new TextShape(point, text, currentColor, 14));
-                    saveHistory(); // 保存历史记录
                 }
-                imageLabel.remove(textField);
-                updateImage();
+                zoomView.remove(textField);
+                zoomView.repaint();
             }
         });
 
         textField.requestFocus();
-        imageLabel.repaint();
+        zoomView.repaint();
     }
 
     private void eraseShapes(Point point) {
         int size = currentEraserSize;
         Rectangle eraseRect = new Rectangle(point.x - size / 2, point.y - size / 2, size, size);
 
-        List<Shape> newShapes = new ArrayList<>();
-        for (Shape shape : shapes) {
-            if (!shape.getBounds().intersects(eraseRect)) {
-                newShapes.add(shape);
-            }
-        }
-
-        shapes = newShapes;
-        saveHistory(); // 保存历史记录
-        updateImage();
+        repaintShapes(history.removeIntersecting(shapes, eraseRect));
     }
 
     private Point convertToImageCoordinates(Point componentPoint) {
-        JViewport viewport = (JViewport) imageLabel.getParent();
+        JViewport viewport = (JViewport) zoomView.getParent();
         Point viewPosition = viewport.getViewPosition();
 
-        double scaleX = (double) originalImage.getWidth() / imageLabel.getWidth();
-        double scaleY = (double) originalImage.getHeight() / imageLabel.getHeight();
+        double scaleX = (double) imageWidth / zoomView.getDisplayWidth();
+        double scaleY = (double) imageHeight / zoomView.getDisplayHeight();
 
         return new Point(
                 (int) ((componentPoint.x + viewPosition.x) * scaleX),
@@ -1198,11 +1488,11 @@ class PinnedWindow extends JFrame {
     }
 
     private Point convertToComponentCoordinates(Point imagePoint) {
-        JViewport viewport = (JViewport) imageLabel.getParent();
+        JViewport viewport = (JViewport) zoomView.getParent();
         Point viewPosition = viewport.getViewPosition();
 
-        double scaleX = (double) imageLabel.getWidth() / originalImage.getWidth();
-        double scaleY = (double) imageLabel.getHeight() / originalImage.getHeight();
+        double scaleX = (double) zoomView.getDisplayWidth() / imageWidth;
+        double scaleY = (double) zoomView.getDisplayHeight() / imageHeight;
 
         return new Point(
                 (int) (imagePoint.x * scaleX - viewPosition.x),
@@ -1210,28 +1500,36 @@ class PinnedWindow extends JFrame {
         );
     }
 
-    private void updateImage() {
-        Graphics2D g2d = editedImage.createGraphics();
-        g2d.drawImage(originalImage, 0, 0, null);
-
-        for (Shape shape : shapes) {
+    // 矢量图层：在图像坐标系中绘制裁剪区域附近的标注，底图不需要重新生成
+    private void paintAnnotations(Graphics2D g2d) {
+        Rectangle clip = g2d.getClipBounds();
+        Collection<Shape> visible = shapes.all();
+        if (clip != null) {
+            clip.grow(REPAINT_MARGIN, REPAINT_MARGIN);
+            visible = shapes.query(clip);
+        }
+        for (Shape shape : visible) {
             shape.draw(g2d);
         }
+        if (currentShape != null) {
+            currentShape.draw(g2d);
+        }
+    }
 
-        g2d.dispose();
-
-        // 更新缩放后的图像
-        int newWidth = (int) (editedImage.getWidth() * scale);
-        int newHeight = (int) (editedImage.getHeight() * scale);
+    private static Rectangle getRepaintBounds(Shape shape) {
+        Rectangle bounds = shape.getBounds();
+        bounds.grow(REPAINT_MARGIN, REPAINT_MARGIN);
+        return bounds;
+    }
 
-        BufferedImage scaled = new BufferedImage(newWidth, newHeight, editedImage.getType());
-        Graphics2D g = scaled.createGraphics();
-        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g.drawImage(editedImage, 0, 0, newWidth, newHeight, null);
-        g.dispose();
+    private void repaintShapeMove(Rectangle oldBounds, Shape shape) {
+        zoomView.repaintImageArea(oldBounds.union(getRepaintBounds(shape)));
+    }
 
-        scaledImage = scaled;
-        imageLabel.setIcon(new ImageIcon(scaledImage));
+    private void repaintShapes(Collection<Shape> affected) {
+        for (Shape shape : affected) {
+            zoomView.repaintImageArea(getRepaintBounds(shape));
+        }
     }
 
     private void handleZoom(MouseWheelEvent e) {
@@ -1241,17 +1539,8 @@ class PinnedWindow extends JFrame {
         scale *= zoomFactor;
         scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
 
-        int newWidth = (int) (originalImage.getWidth() * scale);
-        int newHeight = (int) (originalImage.getHeight() * scale);
-
-        BufferedImage newImage = new BufferedImage(newWidth, newHeight, originalImage.getType());
-        Graphics2D g2d = newImage.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2d.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
-        g2d.dispose();
-
-        scaledImage = newImage;
-        imageLabel.setIcon(new ImageIcon(scaledImage));
+        // 立即显示近似缩放，高质量结果在后台生成后替换
+        zoomView.setScale(scale);
         pack();
     }
 
@@ -1471,25 +1760,27 @@ class TextShape implements Shape {
     private Point position;
     private String text;
     private Color color;
-    private int fontSize;
+    private Font font;
 
     public TextShape(Point position, String text, Color color, int fontSize) {
         this.position = position;
         this.text = text;
         this.color = color;
-        this.fontSize = fontSize;
+        this.font = TextCache.getFont("Microsoft YaHei", Font.PLAIN, fontSize);
+    }
+
+    public String getText() {
+        return text;
     }
 
     @Override
     public void draw(Graphics2D g2d) {
         g2d.setColor(color);
-        Font font = new Font("Microsoft YaHei", Font.PLAIN, fontSize);
         g2d.setFont(font);
 
-        FontMetrics metrics = g2d.getFontMetrics(font);
-        int baseline = metrics.getAscent(); // 获取文字基线
+        int baseline = TextCache.getLayout(font, text).getAscent(); // 获取文字基线
 
-        g2d.drawString(text, position.x, position.y + baseline);
+        TextCache.drawString(g2d, font, text, position.x, position.y + baseline);
     }
 
     @Override
@@ -1499,10 +1790,8 @@ class TextShape implements Shape {
 
     @Override
     public Rectangle getBounds() {
-        Font font = new Font("Microsoft YaHei", Font.PLAIN, fontSize);
-        FontMetrics metrics = Toolkit.getDefaultToolkit().getFontMetrics(font);
-        int width = metrics.stringWidth(text);
-        int height = metrics.getHeight();
-        return new Rectangle(position.x, position.y - metrics.getDescent(), width, height);
+        // 文字绘制在 position 下方，基线在 position.y + ascent
+        TextCache.TextLayoutInfo layout = TextCache.getLayout(font, text);
+        return layout.getBounds(position.x, position.y + layout.getAscent());
     }
 }
@@ -0,0 +1,147 @@
+package com.tyler.screenshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+
+/**
+ * 滚动长截图：反复捕获选中的屏幕区域，交给 ScrollStitcher 拼接成一张长图。
+ * 自动模式下用 Robot 在区域中心发送滚轮事件，连续几帧内容不再移动（到底了）时自动结束；
+ * 关闭自动滚动后由用户自己滚动，点 Stop 结束。控制窗口放在区域外面，不会被截进去。
+ */
+class ScrollCaptureSession {
+    private static final int MAX_HEIGHT = Integer.getInteger("screenshot.scroll.maxHeight", 30000);
+    private static final int WHEEL_STEP = 3;     // 每次滚动的滚轮格数
+    private static final int SETTLE_MILLIS = 200; // 滚动后等待页面绘制完成
+    private static final int MANUAL_INTERVAL = 100;
+    private static final int IDLE_FRAMES = 3;     // 自动模式下连续这么多帧没有新内容就结束
+
+    private final MainFrame mainFrame;
+    private final Rectangle region; // 屏幕坐标
+    private final String monitor;
+    private final Robot robot;
+    private final ScrollStitcher stitcher;
+
+    private final JFrame controlFrame = new JFrame("Scrolling Capture");
+    private final JLabel statusLabel = new JLabel("Starting...");
+    private final JCheckBox autoScrollBox = new JCheckBox("Auto scroll", true);
+
+    private volatile boolean autoScroll = true;
+    private volatile boolean stopped = false;
+    private volatile boolean cancelled = false;
+
+    public ScrollCaptureSession(MainFrame mainFrame, Rectangle region, String monitor) throws AWTException {
+        this.mainFrame = mainFrame;
+        this.region = new Rectangle(region);
+        this.monitor = monitor;
+        this.robot = new Robot();
+        this.stitcher = new ScrollStitcher(region.width, region.height, Math.max(region.height, MAX_HEIGHT));
+        initComponents();
+    }
+
+    private void initComponents() {
+        controlFrame.setAlwaysOnTop(true);
+        controlFrame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        controlFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                cancelled = true;
+                stopped = true;
+            }
+        });
+
+        autoScrollBox.addActionListener(e -> autoScroll = autoScrollBox.isSelected());
+        JButton stopButton = new JButton("Stop");
+        stopButton.addActionListener(e -> stopped = true);
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> {
+            cancelled = true;
+            stopped = true;
+        });
+
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 6));
+        statusLabel.setPreferredSize(new Dimension(160, 20));
+        panel.add(statusLabel);
+        panel.add(autoScrollBox);
+        panel.add(stopButton);
+        panel.add(cancelButton);
+        controlFrame.add(panel);
+        controlFrame.pack();
+        controlFrame.setLocation(controlLocation(controlFrame.getSize()));
+    }
+
+    // 优先放在区域下方，放不下就放上方，再不行放在屏幕角落
+    private Point controlLocation(Dimension size) {
+        Rectangle screen = GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds();
+        int x = Math.max(screen.x, Math.min(region.x, screen.x + screen.width - size.width));
+        if (region.y + region.height + 8 + size.height <= screen.y + screen.height) {
+            return new Point(x, region.y + region.height + 8);
+        }
+        if (region.y - 8 - size.height >= screen.y) {
+            return new Point(x, region.y - 8 - size.height);
+        }
+        return new Point(screen.x + screen.width - size.width, screen.y + screen.height - size.height);
+    }
+
+    // 必须在 EDT 上调用
+    public void start() {
+        controlFrame.setVisible(true);
+        Thread thread = new Thread(this::run, "screenshot-scroll-capture");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            // 等覆盖层真正隐藏后再捕获第一帧
+            robot.waitForIdle();
+            robot.delay(SETTLE_MILLIS);
+            int idle = 0;
+            while (!stopped && !stitcher.isFull()) {
+                BufferedImage frame = robot.createScreenCapture(region);
+                int added = stitcher.append(frame);
+                idle = added == 0 ? idle + 1 : 0;
+                updateStatus();
+
+                if (autoScroll) {
+                    if (idle >= IDLE_FRAMES) {
+                        break;
+                    }
+                    robot.mouseMove(region.x + region.width / 2, region.y + region.height / 2);
+                    robot.mouseWheel(WHEEL_STEP);
+                    robot.waitForIdle();
+                    robot.delay(SETTLE_MILLIS);
+                } else {
+                    robot.delay(MANUAL_INTERVAL);
+                }
+            }
+            SwingUtilities.invokeLater(this::finish);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            e.printStackTrace();
+            SwingUtilities.invokeLater(() -> {
+                controlFrame.dispose();
+                JOptionPane.showMessageDialog(null, "Scrolling capture failed: " + e.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                mainFrame.setVisible(true);
+            });
+        }
+    }
+
+    private void updateStatus() {
+        String status = stitcher.getHeight() + " rows" + (stitcher.hasLostTrack() ? " (scroll slower)" : "");
+        SwingUtilities.invokeLater(() -> statusLabel.setText(status));
+    }
+
+    private void finish() {
+        controlFrame.dispose();
+        if (cancelled) {
+            mainFrame.setVisible(true);
+            return;
+        }
+        BufferedImage image = stitcher.toImage();
+        mainFrame.recordCapture(image, monitor);
+        new EditFrame(mainFrame, image, new Rectangle(0, 0, image.getWidth(), image.getHeight())).setVisible(true);
+    }
+}
@@ -0,0 +1,200 @@
+package com.tyler.screenshot;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * 滚动长截图的拼接：每帧先算出每一行的哈希，再用行哈希序列上的滚动哈希找出
+ * 上一帧末尾和这一帧开头重合的行数，只追加新滚入的行。
+ * 上下不随内容滚动的部分（固定的标题栏、工具栏）按同一位置的行相同识别出来，不参与匹配。
+ * 拼接结果放在堆外的直接内存中，按需成倍扩展，结束时才转换成图像。
+ */
+class ScrollStitcher {
+    private static final int MIN_OVERLAP = 8;   // 重合少于这么多行时认为没有对上
+    private static final long ROW_BASE = 1_000_003L;
+    private static final long SEQUENCE_BASE = 0x9E3779B97F4A7C15L;
+
+    private final int width;
+    private final int frameHeight;
+    private final int maxHeight;
+    private IntBuffer pixels; // 已拼接的像素，行优先
+    private int height = 0;
+
+    private int[] frame;          // 当前帧像素
+    private long[] rowHashes;     // 当前帧各行哈希
+    private long[] previousHashes;
+    private final long[] prefixPrevious;
+    private final long[] prefixCurrent;
+    private final long[] powers;
+    private boolean lostTrack = false;
+
+    ScrollStitcher(int width, int frameHeight, int maxHeight) {
+        this.width = width;
+        this.frameHeight = frameHeight;
+        this.maxHeight = maxHeight;
+        this.pixels = allocate((long) width * frameHeight * 4);
+        this.frame = new int[width * frameHeight];
+        this.rowHashes = new long[frameHeight];
+        this.previousHashes = new long[frameHeight];
+        this.prefixPrevious = new long[frameHeight + 1];
+        this.prefixCurrent = new long[frameHeight + 1];
+        this.powers = new long[frameHeight + 1];
+        powers[0] = 1;
+        for (int i = 1; i <= frameHeight; i++) {
+            powers[i] = powers[i - 1] * SEQUENCE_BASE;
+        }
+    }
+
+    /**
+     * 加入一帧，返回这一帧新增的行数；0 表示内容没有移动（到底了或还没滚动）
+     */
+    public int append(BufferedImage image) {
+        if (image.getWidth() != width || image.getHeight() != frameHeight) {
+            throw new IllegalArgumentException("Frame size changed: " + image.getWidth() + "x" + image.getHeight());
+        }
+        readFrame(image);
+
+        if (height == 0) {
+            appendRows(0, frameHeight);
+            swapHashes();
+            return frameHeight;
+        }
+
+        long[] previous = previousHashes;
+        long[] current = rowHashes;
+        int h = frameHeight;
+        int top = 0;
+        while (top < h && previous[top] == current[top]) {
+            top++;
+        }
+        if (top == h) {
+            return 0;
+        }
+        int bottom = 0;
+        while (bottom < h - top && previous[h - 1 - bottom] == current[h - 1 - bottom]) {
+            bottom++;
+        }
+
+        // 只在中间随内容滚动的区域内匹配：上一帧区域的后 k 行等于这一帧区域的前 k 行
+        int bandStart = top;
+        int bandLength = h - top - bottom;
+        int overlap = findOverlap(previous, current, bandStart, bandLength);
+        lostTrack = overlap < 0;
+        if (overlap < 0) {
+            // 一次滚动太多，没有重合部分，只能直接接上
+            overlap = 0;
+        }
+
+        // 拼接结果末尾是上一帧的固定底部，先去掉，接上新行后再补上这一帧的底部
+        height -= bottom;
+        int added = bandLength - overlap;
+        appendRows(bandStart + overlap, h);
+        swapHashes();
+        return added;
+    }
+
+    // 上一帧区域末尾和这一帧区域开头最长的重合行数，没有时返回 -1
+    private int findOverlap(long[] previous, long[] current, int start, int length) {
+        prefixPrevious[0] = 0;
+        prefixCurrent[0] = 0;
+        for (int i = 0; i < length; i++) {
+            prefixPrevious[i + 1] = prefixPrevious[i] * SEQUENCE_BASE + previous[start + i];
+            prefixCurrent[i + 1] = prefixCurrent[i] * SEQUENCE_BASE + current[start + i];
+        }
+        // 从最大重合开始找，即滚动距离最小的解
+        for (int k = length - 1; k >= MIN_OVERLAP; k--) {
+            long suffix = prefixPrevious[length] - prefixPrevious[length - k] * powers[k];
+            if (suffix == prefixCurrent[k] && verify(previous, current, start, length, k)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean verify(long[] previous, long[] current, int start, int length, int k) {
+        int offset = start + length - k;
+        for (int i = 0; i < k; i++) {
+            if (previous[offset + i] != current[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readFrame(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            image.getRaster().getDataElements(0, 0, width, frameHeight, frame);
+        } else {
+            image.getRGB(0, 0, width, frameHeight, frame, 0, width);
+        }
+        for (int y = 0, p = 0; y < frameHeight; y++) {
+            long hash = 0;
+            for (int x = 0; x < width; x++, p++) {
+                hash = hash * ROW_BASE + (frame[p] & 0xffffff);
+            }
+            rowHashes[y] = hash;
+        }
+    }
+
+    private void swapHashes() {
+        long[] t = previousHashes;
+        previousHashes = rowHashes;
+        rowHashes = t;
+    }
+
+    private void appendRows(int fromRow, int toRow) {
+        int rows = Math.min(toRow - fromRow, maxHeight - height);
+        if (rows <= 0) {
+            return;
+        }
+        ensureCapacity((long) (height + rows) * width);
+        IntBuffer target = pixels.duplicate();
+        ((Buffer) target).position(height * width); // 转成 Buffer 调用，Java 8 上也能运行
+        target.put(frame, fromRow * width, rows * width);
+        height += rows;
+    }
+
+    private void ensureCapacity(long ints) {
+        if (ints <= pixels.capacity()) {
+            return;
+        }
+        long capacity = Math.min(Math.max(ints, pixels.capacity() * 2L), (long) width * maxHeight);
+        IntBuffer grown = allocate(capacity * 4);
+        IntBuffer source = pixels.duplicate();
+        ((Buffer) source).limit(height * width);
+        grown.duplicate().put(source); // 不移动 grown 的 position，其他地方都从 0 开始寻址
+        pixels = grown;
+    }
+
+    private static IntBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Scrolling capture too large: " + bytes + " bytes");
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public boolean isFull() {
+        return height >= maxHeight;
+    }
+
+    // 最近一帧是否没能和上一帧对上
+    public boolean hasLostTrack() {
+        return lostTrack;
+    }
+
+    public BufferedImage toImage() {
+        BufferedImage image = new BufferedImage(width, Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+        IntBuffer source = pixels.duplicate();
+        ((Buffer) source).limit(height * width);
+        source.get(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0, height * width);
+        return image;
+    }
+}
@@ -0,0 +1,120 @@
+package com.tyler.screenshot;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * 截图覆盖层的绘制：选择区域外显示变暗的屏幕，区域内显示原图，加红框和尺寸标签。
+ * 变暗的背景只合成一次并缓存，拖动时只需要重绘选择框新旧位置的并集。
+ */
+public final class SelectionRenderer {
+    private static final Color DIM_COLOR = new Color(0, 0, 0, 100);
+    private static final BasicStroke BORDER_STROKE = new BasicStroke(2);
+    private static final int LABEL_HEIGHT = 20;
+    private static final int LABEL_PADDING = 5;
+
+    private final Font font;
+    private final FontRenderContext frc = new FontRenderContext(null, false, false);
+    private BufferedImage screenImage;
+    private BufferedImage dimmedImage; // 缓存的变暗背景，尺寸不变时跨截图复用
+    private boolean dimmedValid = false;
+
+    public SelectionRenderer(Font font) {
+        this.font = font;
+    }
+
+    public void setScreenImage(BufferedImage image) {
+        this.screenImage = image;
+        this.dimmedValid = false;
+    }
+
+    // 绘制 g 的裁剪区域；selection 为空时显示未变暗的原图
+    public void paint(Graphics2D g, Rectangle selection) {
+        if (screenImage == null) {
+            return;
+        }
+        if (selection == null || selection.isEmpty()) {
+            g.drawImage(screenImage, 0, 0, null);
+            return;
+        }
+
+        // 裁剪区域之外的像素不会被复制，所以背景直接整幅绘制
+        g.drawImage(getDimmedImage(), 0, 0, null);
+
+        Rectangle inside = selection.intersection(new Rectangle(screenImage.getWidth(), screenImage.getHeight()));
+        if (!inside.isEmpty()) {
+            g.drawImage(screenImage, inside.x, inside.y, inside.x + inside.width, inside.y + inside.height,
+                    inside.x, inside.y, inside.x + inside.width, inside.y + inside.height, null);
+        }
+
+        // 绘制选择框边框
+        g.setColor(Color.RED);
+        g.setStroke(BORDER_STROKE);
+        g.drawRect(selection.x, selection.y, selection.width, selection.height);
+
+        // 绘制尺寸信息
+        String sizeInfo = getSizeInfo(selection);
+        Rectangle label = getLabelBounds(selection, sizeInfo);
+        g.setColor(Color.WHITE);
+        g.fillRect(label.x, label.y, label.width, label.height);
+        g.setColor(Color.BLACK);
+        g.setFont(font);
+        g.drawString(sizeInfo, selection.x + LABEL_PADDING, selection.y - LABEL_PADDING);
+    }
+
+    // 选择框（含边框和尺寸标签）需要重绘的区域
+    public Rectangle getDirtyBounds(Rectangle selection) {
+        if (selection == null || selection.isEmpty()) {
+            return new Rectangle();
+        }
+        int border = (int) Math.ceil(BORDER_STROKE.getLineWidth());
+        Rectangle dirty = new Rectangle(selection.x - border, selection.y - border,
+                selection.width + 2 * border + 1, selection.height + 2 * border + 1);
+        Rectangle label = getLabelBounds(selection, getSizeInfo(selection));
+        // 抗锯齿文字可能比测量宽度略宽，多留一点余量
+        label.grow(2, 2);
+        return dirty.union(label);
+    }
+
+    private BufferedImage getDimmedImage() {
+        if (dimmedValid) {
+            return dimmedImage;
+        }
+        int width = screenImage.getWidth();
+        int height = screenImage.getHeight();
+        if (dimmedImage == null || dimmedImage.getWidth() != width || dimmedImage.getHeight() != height) {
+            dimmedImage = createCompatibleImage(width, height);
+        }
+        Graphics2D g2d = dimmedImage.createGraphics();
+        g2d.setComposite(AlphaComposite.Src);
+        g2d.drawImage(screenImage, 0, 0, null);
+        g2d.setComposite(AlphaComposite.SrcOver);
+        g2d.setColor(DIM_COLOR);
+        g2d.fillRect(0, 0, width, height);
+        g2d.dispose();
+        dimmedValid = true;
+        return dimmedImage;
+    }
+
+    // 与屏幕格式一致的图像可以被 Java2D 缓存到显存
+    private static BufferedImage createCompatibleImage(int width, int height) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            return gc.createCompatibleImage(width, height, Transparency.OPAQUE);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static String getSizeInfo(Rectangle selection) {
+        return selection.width + " x " + selection.height;
+    }
+
+    private Rectangle getLabelBounds(Rectangle selection, String sizeInfo) {
+        Rectangle2D text = font.getStringBounds(sizeInfo, frc);
+        int width = (int) Math.ceil(text.getWidth()) + 2 * LABEL_PADDING;
+        return new Rectangle(selection.x, selection.y - LABEL_HEIGHT, width, LABEL_HEIGHT);
+    }
+}
@@ -0,0 +1,242 @@
+package com.tyler.screenshot;
+
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+// 形状的撤销/重做历史：只记录增删的形状和序号，不复制整个列表
+class ShapeHistory {
+    // 默认内存预算，超出后丢弃最早的记录
+    private static final long DEFAULT_BUDGET = 8L * 1024 * 1024;
+
+    private final Deque<Edit> undoStack = new ArrayDeque<>();
+    private final Deque<Edit> redoStack = new ArrayDeque<>();
+    private final long budget;
+    private long undoCost = 0;
+    private long redoCost = 0;
+    private CompoundEdit group = null; // 正在合并的一组操作（如一次橡皮擦拖动）
+
+    public ShapeHistory() {
+        this(DEFAULT_BUDGET);
+    }
+
+    public ShapeHistory(long budget) {
+        this.budget = budget;
+    }
+
+    // 添加一个形状并记录
+    public void add(ShapeStore shapes, Shape shape) {
+        push(new AddEdit(shapes.add(shape), shape));
+    }
+
+    // 删除与 area 相交的形状并记录，返回被删除的形状；只访问命中的形状
+    public List<Shape> removeIntersecting(ShapeStore shapes, Rectangle area) {
+        List<Shape> removed = shapes.query(area);
+        if (removed.isEmpty()) {
+            return removed;
+        }
+        long[] sequences = new long[removed.size()];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = shapes.getSequence(removed.get(i));
+            shapes.remove(sequences[i]);
+        }
+        push(new RemoveEdit(sequences, removed));
+        return removed;
+    }
+
+    // 开始合并：endGroup 之前的所有记录作为一次撤销
+    public void beginGroup() {
+        group = new CompoundEdit();
+    }
+
+    public void endGroup() {
+        CompoundEdit finished = group;
+        group = null;
+        if (finished != null && !finished.edits.isEmpty()) {
+            push(finished);
+        }
+    }
+
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    // 撤销最近一次操作，返回受影响的形状（用于局部重绘）
+    public List<Shape> undo(ShapeStore shapes) {
+        endGroup();
+        Edit edit = undoStack.pollFirst();
+        if (edit == null) {
+            return Collections.emptyList();
+        }
+        undoCost -= edit.cost();
+        edit.undo(shapes);
+        redoStack.push(edit);
+        redoCost += edit.cost();
+        return edit.affected();
+    }
+
+    // 重做最近一次撤销的操作，返回受影响的形状
+    public List<Shape> redo(ShapeStore shapes) {
+        Edit edit = redoStack.pollFirst();
+        if (edit == null) {
+            return Collections.emptyList();
+        }
+        redoCost -= edit.cost();
+        edit.redo(shapes);
+        undoStack.push(edit);
+        undoCost += edit.cost();
+        trim();
+        return edit.affected();
+    }
+
+    private void push(Edit edit) {
+        if (group != null) {
+            group.edits.add(edit);
+            return;
+        }
+        undoStack.push(edit);
+        undoCost += edit.cost();
+        // 新操作之后不能再重做
+        redoStack.clear();
+        redoCost = 0;
+        trim();
+    }
+
+    // 超出预算时从最早的记录开始丢弃，每次 push 均摊 O(1)
+    private void trim() {
+        while (undoCost + redoCost > budget && undoStack.size() > 1) {
+            undoCost -= undoStack.pollLast().cost();
+        }
+    }
+
+    // 估算一个形状占用的内存（对象头、坐标和颜色），文字按字符数计算
+    private static long shapeCost(Shape shape) {
+        long cost = 96;
+        if (shape instanceof TextShape) {
+            cost += 2L * ((TextShape) shape).getText().length();
+        }
+        return cost;
+    }
+
+    private interface Edit {
+        void undo(ShapeStore shapes);
+
+        void redo(ShapeStore shapes);
+
+        List<Shape> affected();
+
+        long cost();
+    }
+
+    private static class AddEdit implements Edit {
+        private final long sequence;
+        private final Shape shape;
+
+        AddEdit(long sequence, Shape shape) {
+            this.sequence = sequence;
+            this.shape = shape;
+        }
+
+        @Override
+        public void undo(ShapeStore shapes) {
+            shapes.remove(sequence);
+        }
+
+        @Override
+        public void redo(ShapeStore shapes) {
+            shapes.put(sequence, shape);
+        }
+
+        @Override
+        public List<Shape> affected() {
+            return Collections.singletonList(shape);
+        }
+
+        @Override
+        public long cost() {
+            return 32 + shapeCost(shape);
+        }
+    }
+
+    private static class RemoveEdit implements Edit {
+        private final long[] sequences;
+        private final List<Shape> removed;
+
+        RemoveEdit(long[] sequences, List<Shape> removed) {
+            this.sequences = sequences;
+            this.removed = removed;
+        }
+
+        @Override
+        public void undo(ShapeStore shapes) {
+            // 按原序号放回，保持绘制顺序
+            for (int i = 0; i < sequences.length; i++) {
+                shapes.put(sequences[i], removed.get(i));
+            }
+        }
+
+        @Override
+        public void redo(ShapeStore shapes) {
+            for (long sequence : sequences) {
+                shapes.remove(sequence);
+            }
+        }
+
+        @Override
+        public List<Shape> affected() {
+            return removed;
+        }
+
+        @Override
+        public long cost() {
+            long cost = 32 + 8L * sequences.length;
+            for (Shape shape : removed) {
+                cost += shapeCost(shape);
+            }
+            return cost;
+        }
+    }
+
+    private static class CompoundEdit implements Edit {
+        private final List<Edit> edits = new ArrayList<>();
+
+        @Override
+        public void undo(ShapeStore shapes) {
+            for (int i = edits.size() - 1; i >= 0; i--) {
+                edits.get(i).undo(shapes);
+            }
+        }
+
+        @Override
+        public void redo(ShapeStore shapes) {
+            for (Edit edit : edits) {
+                edit.redo(shapes);
+            }
+        }
+
+        @Override
+        public List<Shape> affected() {
+            List<Shape> result = new ArrayList<>();
+            for (Edit edit : edits) {
+                result.addAll(edit.affected());
+            }
+            return result;
+        }
+
+        @Override
+        public long cost() {
+            long cost = 32;
+            for (Edit edit : edits) {
+                cost += edit.cost();
+            }
+            return cost;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.tyler.screenshot;
+
+import com.tyler.core.SpatialGrid;
+
+import java.awt.Rectangle;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// 已提交的形状：按序号保持绘制顺序，并用网格索引缓存的边界做命中测试
+class ShapeStore {
+    private static final int CELL_SIZE = 128;
+
+    private final TreeMap<Long, Shape> shapes = new TreeMap<>();
+    private final Map<Shape, Long> sequences = new IdentityHashMap<>();
+    private final SpatialGrid<Shape> grid = new SpatialGrid<>(CELL_SIZE);
+    private long nextSequence = 0;
+
+    // 添加到最上层，返回序号
+    public long add(Shape shape) {
+        long sequence = nextSequence++;
+        put(sequence, shape);
+        return sequence;
+    }
+
+    // 按原序号放回（撤销删除、重做添加）
+    public void put(long sequence, Shape shape) {
+        shapes.put(sequence, shape);
+        sequences.put(shape, sequence);
+        // 形状提交后不再变化，边界只计算一次
+        grid.insert(shape, shape.getBounds());
+    }
+
+    public Shape remove(long sequence) {
+        Shape shape = shapes.remove(sequence);
+        if (shape != null) {
+            sequences.remove(shape);
+            grid.remove(shape);
+        }
+        return shape;
+    }
+
+    public long getSequence(Shape shape) {
+        return sequences.get(shape);
+    }
+
+    // 缓存的边界
+    public Rectangle getBounds(Shape shape) {
+        return grid.getBounds(shape);
+    }
+
+    // 按绘制顺序返回所有形状
+    public Collection<Shape> all() {
+        return Collections.unmodifiableCollection(shapes.values());
+    }
+
+    // 返回边界与 area 相交的形状，按绘制顺序排列
+    public List<Shape> query(Rectangle area) {
+        List<Shape> hits = grid.query(area);
+        if (hits.size() > 1) {
+            hits.sort((a, b) -> Long.compare(sequences.get(a), sequences.get(b)));
+        }
+        return hits;
+    }
+
+    public int size() {
+        return shapes.size();
+    }
+}
@@ -0,0 +1,258 @@
+package com.tyler.screenshot;
+
+import com.tyler.core.PerceptualHash;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 截图的相似度索引：每张截图记录一个 64 位 dHash，按汉明距离查找相似的截图。
+ * 使用多索引哈希（multi-index hashing）：哈希分成 4 段 16 位，每段各建一张桶表。
+ * 距离不超过 r 的两个哈希至少有一段的距离不超过 r / 4，所以只需要在每段中枚举很少的邻近桶，
+ * 再对候选做完整比较，几十万条记录也只要几毫秒。
+ * 磁盘上分两个只追加的文件：similar.idx 为定长记录（哈希、引用偏移），similar.ref 为变长的引用和时间，
+ * 启动时只读 similar.idx 重建桶表，引用在查询命中时才读取。
+ */
+class SimilarityIndex {
+    private static final byte[] MAGIC = "SIMH0001".getBytes(StandardCharsets.US_ASCII);
+    private static final int RECORD_SIZE = 16;
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 16;
+    private static final int MAX_REFERENCE_BYTES = 1024;
+
+    // 引用的前缀：历史记录中的截图和导出的文件
+    static final String HISTORY_PREFIX = "history:";
+    static final String FILE_PREFIX = "file:";
+
+    private final RandomAccessFile indexFile;
+    private final RandomAccessFile referenceFile;
+
+    private long[] hashes = new long[1024];
+    private long[] referenceOffsets = new long[1024];
+    private int count = 0;
+    // 每段一张桶表：heads[段][段值] 为该桶最后加入的记录，next[段][记录] 指向同桶的前一条
+    private final int[][] heads = new int[CHUNKS][1 << CHUNK_BITS];
+    private int[][] next = new int[CHUNKS][1024];
+    private int[] visited = new int[1024]; // 查询去重用
+    private int queryStamp = 0;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "screenshot-similarity");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    SimilarityIndex(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        for (int[] chunkHeads : heads) {
+            Arrays.fill(chunkHeads, -1);
+        }
+        this.indexFile = new RandomAccessFile(new File(dir, "similar.idx"), "rw");
+        this.referenceFile = new RandomAccessFile(new File(dir, "similar.ref"), "rw");
+        load();
+    }
+
+    // 与截图历史放在同一个目录
+    static SimilarityIndex openDefault() throws IOException {
+        return new SimilarityIndex(ScreenshotHistory.getDefaultDirectory());
+    }
+
+    private void load() throws IOException {
+        FileChannel channel = indexFile.getChannel();
+        if (channel.size() < MAGIC.length) {
+            indexFile.setLength(0);
+            indexFile.write(MAGIC);
+            return;
+        }
+        byte[] magic = new byte[MAGIC.length];
+        indexFile.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a similarity index");
+        }
+        // 末尾没写完整的记录直接忽略
+        int records = (int) ((channel.size() - MAGIC.length) / RECORD_SIZE);
+        LongBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, MAGIC.length, (long) records * RECORD_SIZE)
+                .asLongBuffer();
+        for (int i = 0; i < records; i++) {
+            insert(data.get(i * 2), data.get(i * 2 + 1));
+        }
+        indexFile.setLength(MAGIC.length + (long) records * RECORD_SIZE);
+    }
+
+    /**
+     * 在后台计算 dHash 并加入索引。reference 用来找回原图（历史记录的内容哈希或导出文件路径）。
+     * 调用方交出 image 后不能再修改它。
+     */
+    public void add(BufferedImage image, String reference) {
+        long timestamp = System.currentTimeMillis();
+        executor.execute(() -> {
+            try {
+                add(PerceptualHash.dHash(image), reference, timestamp);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // 已经算好 dHash 时在后台直接加入索引
+    public void add(long hash, String reference) {
+        long timestamp = System.currentTimeMillis();
+        executor.execute(() -> {
+            try {
+                add(hash, reference, timestamp);
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    synchronized void add(long hash, String reference, long timestamp) throws IOException {
+        byte[] bytes = reference.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_REFERENCE_BYTES) {
+            throw new IllegalArgumentException("Reference too long: " + reference);
+        }
+        // 先写引用再写索引记录，中途退出时索引不会指向不存在的引用
+        long offset = referenceFile.length();
+        referenceFile.seek(offset);
+        referenceFile.writeLong(timestamp);
+        referenceFile.writeShort(bytes.length);
+        referenceFile.write(bytes);
+
+        indexFile.seek(MAGIC.length + (long) count * RECORD_SIZE);
+        indexFile.writeLong(hash);
+        indexFile.writeLong(offset);
+        insert(hash, offset);
+    }
+
+    private void insert(long hash, long referenceOffset) {
+        if (count == hashes.length) {
+            int capacity = count * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            referenceOffsets = Arrays.copyOf(referenceOffsets, capacity);
+            visited = Arrays.copyOf(visited, capacity);
+            for (int c = 0; c < CHUNKS; c++) {
+                next[c] = Arrays.copyOf(next[c], capacity);
+            }
+        }
+        int id = count++;
+        hashes[id] = hash;
+        referenceOffsets[id] = referenceOffset;
+        for (int c = 0; c < CHUNKS; c++) {
+            int key = chunk(hash, c);
+            next[c][id] = heads[c][key];
+            heads[c][key] = id;
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * 返回与 hash 的汉明距离不超过 maxDistance 的记录，按距离从近到远排列
+     */
+    public synchronized List<Match> findSimilar(long hash, int maxDistance) throws IOException {
+        if (maxDistance < 0 || maxDistance > 64) {
+            throw new IllegalArgumentException("maxDistance must be 0-64: " + maxDistance);
+        }
+        if (++queryStamp == 0) {
+            Arrays.fill(visited, 0);
+            queryStamp = 1;
+        }
+        int chunkRadius = maxDistance / CHUNKS;
+        List<Integer> hits = new ArrayList<>();
+        for (int c = 0; c < CHUNKS; c++) {
+            probe(c, chunk(hash, c), chunkRadius, 0, hash, maxDistance, hits);
+        }
+
+        List<Match> matches = new ArrayList<>(hits.size());
+        for (int id : hits) {
+            matches.add(readMatch(id, PerceptualHash.distance(hash, hashes[id])));
+        }
+        matches.sort((a, b) -> a.distance != b.distance ? Integer.compare(a.distance, b.distance)
+                : Long.compare(b.timestamp, a.timestamp));
+        return matches;
+    }
+
+    // 枚举与 key 相差不超过 radius 位的所有段值（只翻转 fromBit 及之后的位，避免重复）
+    private void probe(int c, int key, int radius, int fromBit, long hash, int maxDistance, List<Integer> hits) {
+        for (int id = heads[c][key]; id >= 0; id = next[c][id]) {
+            if (visited[id] != queryStamp) {
+                visited[id] = queryStamp;
+                if (PerceptualHash.distance(hash, hashes[id]) <= maxDistance) {
+                    hits.add(id);
+                }
+            }
+        }
+        if (radius == 0) {
+            return;
+        }
+        for (int bit = fromBit; bit < CHUNK_BITS; bit++) {
+            probe(c, key ^ (1 << bit), radius - 1, bit + 1, hash, maxDistance, hits);
+        }
+    }
+
+    private static int chunk(long hash, int c) {
+        return (int) (hash >>> (c * CHUNK_BITS)) & ((1 << CHUNK_BITS) - 1);
+    }
+
+    private Match readMatch(int id, int distance) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(10);
+        FileChannel channel = referenceFile.getChannel();
+        long offset = referenceOffsets[id];
+        channel.read(header, offset);
+        ((Buffer) header).flip();
+        long timestamp = header.getLong();
+        byte[] bytes = new byte[header.getShort() & 0xffff];
+        channel.read(ByteBuffer.wrap(bytes), offset + 10);
+        return new Match(new String(bytes, StandardCharsets.UTF_8), timestamp, hashes[id], distance);
+    }
+
+    /**
+     * 查询结果
+     */
+    static final class Match {
+        private final String reference;
+        private final long timestamp;
+        private final long hash;
+        private final int distance;
+
+        Match(String reference, long timestamp, long hash, int distance) {
+            this.reference = reference;
+            this.timestamp = timestamp;
+            this.hash = hash;
+            this.distance = distance;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+}
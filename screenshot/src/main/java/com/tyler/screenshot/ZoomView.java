@@ -0,0 +1,255 @@
+package com.tyler.screenshot;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 钉图窗口的缩放显示组件。
+ * 维护逐级减半的 mip 金字塔，缩放时先用最接近的层级即时绘制近似结果，
+ * 再在后台线程生成高质量缩放图，完成后替换显示。缩放缓冲区在各缩放级别之间复用。
+ * 标注作为矢量图层按当前缩放直接绘制在缩放后的底图上，不参与底图缩放。
+ */
+class ZoomView extends JPanel {
+    // 矢量图层，在图像坐标系中绘制
+    interface Overlay {
+        void paint(Graphics2D g2d);
+    }
+
+    // 最小缩放为 0.25，金字塔只需要生成到四分之一
+    private static final int PYRAMID_LEVELS = 3;
+
+    // 所有钉图共用一个后台线程，新的请求会让旧请求的结果作废
+    private static final ExecutorService RESCALE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "pin-zoom");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private BufferedImage image;
+    private List<BufferedImage> pyramid = Collections.emptyList(); // 第 0 层是原图，之后每层宽高减半
+    private double scale = 1.0;
+    private int displayWidth;
+    private int displayHeight;
+
+    // 高质量缩放结果：前台缓冲区用于显示，后台缓冲区给下一次缩放复用
+    private BufferedImage frontBuffer;
+    private BufferedImage backBuffer;
+    private long frontGeneration = -1;
+    private volatile long generation = 0; // 每次缩放或图像变化加一，过期的结果直接丢弃
+    private Overlay overlay;
+
+    ZoomView(BufferedImage image) {
+        super(null);
+        setOpaque(false);
+        setImage(image);
+    }
+
+    // 设置显示的图像；图像内容变化后也要调用，金字塔和高质量缩放图会在后台重新生成
+    public void setImage(BufferedImage image) {
+        this.image = image;
+        this.pyramid = Collections.singletonList(image);
+        updateDisplaySize();
+        requestRescale(true);
+    }
+
+    // 释放图像和所有缩放缓冲区，只保留显示尺寸；再次显示前需要重新 setImage
+    public void releaseImage() {
+        generation++;
+        image = null;
+        pyramid = Collections.emptyList();
+        frontBuffer = null;
+        backBuffer = null;
+        repaint();
+    }
+
+    public void setScale(double scale) {
+        if (scale == this.scale) {
+            return;
+        }
+        this.scale = scale;
+        updateDisplaySize();
+        requestRescale(false);
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public void setOverlay(Overlay overlay) {
+        this.overlay = overlay;
+        repaint();
+    }
+
+    // 只重绘图像坐标系中的某个区域（如一个标注的新旧位置）
+    public void repaintImageArea(Rectangle area) {
+        int x = (int) Math.floor(area.x * scale) - 1;
+        int y = (int) Math.floor(area.y * scale) - 1;
+        int width = (int) Math.ceil(area.width * scale) + 3;
+        int height = (int) Math.ceil(area.height * scale) + 3;
+        repaint(x, y, width, height);
+    }
+
+    // 当前缩放下图像的显示尺寸
+    public int getDisplayWidth() {
+        return displayWidth;
+    }
+
+    public int getDisplayHeight() {
+        return displayHeight;
+    }
+
+    private void updateDisplaySize() {
+        if (image == null) {
+            return;
+        }
+        displayWidth = Math.max(1, (int) (image.getWidth() * scale));
+        displayHeight = Math.max(1, (int) (image.getHeight() * scale));
+        setPreferredSize(new Dimension(displayWidth, displayHeight));
+        revalidate();
+        repaint();
+    }
+
+    private void requestRescale(boolean rebuildPyramid) {
+        long request = ++generation;
+        if (image == null) {
+            return;
+        }
+        BufferedImage source = image;
+        List<BufferedImage> levels = pyramid;
+        double targetScale = scale;
+        int width = displayWidth;
+        int height = displayHeight;
+        BufferedImage buffer = backBuffer;
+        backBuffer = null;
+
+        RESCALE_EXECUTOR.execute(() -> {
+            if (request != generation) {
+                restoreBackBuffer(buffer);
+                return;
+            }
+            List<BufferedImage> newLevels = rebuildPyramid ? buildPyramid(source) : levels;
+            BufferedImage target = null;
+            if (targetScale != 1.0 && request == generation) {
+                target = ensureCapacity(buffer, width, height);
+                renderHighQuality(source, newLevels, target, width, height);
+            }
+            BufferedImage result = target;
+            SwingUtilities.invokeLater(() -> {
+                if (request != generation) {
+                    // 结果已过期，缓冲区留给下一次使用
+                    restoreBackBuffer(result != null ? result : buffer);
+                    return;
+                }
+                pyramid = newLevels;
+                if (result != null) {
+                    backBuffer = frontBuffer;
+                    frontBuffer = result;
+                    frontGeneration = request;
+                } else {
+                    restoreBackBuffer(buffer);
+                }
+                repaint();
+            });
+        });
+    }
+
+    private void restoreBackBuffer(BufferedImage buffer) {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(() -> restoreBackBuffer(buffer));
+            return;
+        }
+        if (backBuffer == null) {
+            backBuffer = buffer;
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (image == null) {
+            return;
+        }
+        if (scale == 1.0) {
+            g.drawImage(image, 0, 0, null);
+        } else if (frontBuffer != null && frontGeneration == generation) {
+            // 高质量结果已经就绪，1:1 复制
+            g.drawImage(frontBuffer, 0, 0, displayWidth, displayHeight,
+                    0, 0, displayWidth, displayHeight, null);
+        } else {
+            // 近似结果：从最接近的金字塔层级直接缩放绘制
+            Graphics2D g2d = (Graphics2D) g.create();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g2d.drawImage(pickLevel(pyramid, displayWidth), 0, 0, displayWidth, displayHeight, null);
+            g2d.dispose();
+        }
+
+        if (overlay != null) {
+            // 矢量图层直接按缩放比例绘制，放大后依然清晰
+            Graphics2D g2d = (Graphics2D) g.create();
+            g2d.scale(scale, scale);
+            overlay.paint(g2d);
+            g2d.dispose();
+        }
+    }
+
+    // 缓冲区只在不够大时重新分配，缩小时继续使用大的缓冲区
+    private static BufferedImage ensureCapacity(BufferedImage buffer, int width, int height) {
+        if (buffer != null && buffer.getWidth() >= width && buffer.getHeight() >= height) {
+            return buffer;
+        }
+        int newWidth = Math.max(width, buffer != null ? buffer.getWidth() : 0);
+        int newHeight = Math.max(height, buffer != null ? buffer.getHeight() : 0);
+        return new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+    }
+
+    // 缩小时从不小于目标尺寸的最小层级开始，每次最多缩小一半，避免混叠；放大时用双三次插值
+    private static void renderHighQuality(BufferedImage source, List<BufferedImage> levels,
+                                          BufferedImage target, int width, int height) {
+        Graphics2D g2d = target.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        if (width < source.getWidth()) {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(pickLevel(levels, width), 0, 0, width, height, null);
+        } else {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g2d.drawImage(source, 0, 0, width, height, null);
+        }
+        g2d.dispose();
+    }
+
+    private static BufferedImage pickLevel(List<BufferedImage> levels, int width) {
+        BufferedImage best = levels.get(0);
+        for (BufferedImage level : levels) {
+            if (level.getWidth() < width) {
+                break;
+            }
+            best = level;
+        }
+        return best;
+    }
+
+    private static List<BufferedImage> buildPyramid(BufferedImage image) {
+        List<BufferedImage> levels = new ArrayList<>();
+        levels.add(image);
+        BufferedImage current = image;
+        while (levels.size() < PYRAMID_LEVELS && current.getWidth() >= 2 && current.getHeight() >= 2) {
+            int width = current.getWidth() / 2;
+            int height = current.getHeight() / 2;
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = next.createGraphics();
+            // 恰好减半时双线性插值等于 2x2 平均
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(current, 0, 0, width, height, null);
+            g2d.dispose();
+            levels.add(next);
+            current = next;
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,126 @@
+#!/usr/bin/env bash
+# 测量各工具可执行 jar 的大小和启动时间。先运行 mvn install -DskipTests 生成 target/<工具名>.jar。
+# 时间都是从启动 JVM 开始的墙钟时间，取多次运行的中位数：
+#   window:  调用工具的 main，直到第一个窗口显示出来（包括 Swing/AWT 初始化），需要显示器（或 Xvfb），
+#            没有 DISPLAY 时跳过。单实例在测量时关闭，每次都是完整启动。
+#   encoder: 录屏工具打开第一个 H.264 编码器（加载 JavaCV、解压并加载 FFmpeg 原生库），不需要显示器。
+#            warm 为原生库已经解压到缓存目录之后，cold 每次使用新的缓存目录，相当于安装后第一次启动。
+# 用法：scripts/measure-jars.sh [运行次数，默认 5]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+
+JARS=(
+    "screenshot/target/ScreenshotTool.jar com.tyler.screenshot.ScreenshotTool"
+    "drawer/target/ScreenDrawer.jar com.tyler.screendrawer.ScreenDrawer draw"
+    "recorder/target/ScreenRecorder.jar com.tyler.recorder2.ScreenRecorder"
+)
+RECORDER_JAR=recorder/target/ScreenRecorder.jar
+
+PROBE_DIR=$(mktemp -d)
+trap 'rm -rf "$PROBE_DIR"' EXIT
+cat > "$PROBE_DIR/WindowProbe.java" <<'EOF'
+import java.awt.Window;
+import java.util.Arrays;
+
+public class WindowProbe {
+    public static void main(String[] args) throws Exception {
+        String[] toolArgs = Arrays.copyOfRange(args, 1, args.length);
+        Class.forName(args[0]).getMethod("main", String[].class).invoke(null, (Object) toolArgs);
+        long deadline = System.currentTimeMillis() + 30000;
+        while (System.currentTimeMillis() < deadline) {
+            for (Window window : Window.getWindows()) {
+                if (window.isShowing()) {
+                    System.exit(0);
+                }
+            }
+            Thread.sleep(5);
+        }
+        System.exit(1);
+    }
+}
+EOF
+cat > "$PROBE_DIR/EncoderProbe.java" <<'EOF'
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+
+import java.io.File;
+
+public class EncoderProbe {
+    public static void main(String[] args) throws Exception {
+        File file = File.createTempFile("encoder-probe", ".mp4");
+        // 和 RecordingService 打开分段时的设置相同
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(file, 1920, 1080);
+        recorder.setVideoCodec(avcodec.AV_CODEC_ID_H264);
+        recorder.setFormat("mp4");
+        recorder.setFrameRate(20);
+        recorder.setPixelFormat(avutil.AV_PIX_FMT_YUV420P);
+        recorder.setVideoOption("preset", "ultrafast");
+        recorder.setVideoOption("tune", "zerolatency");
+        recorder.start();
+        recorder.stop();
+        recorder.release();
+        file.delete();
+    }
+}
+EOF
+javac -encoding UTF-8 -d "$PROBE_DIR" "$PROBE_DIR/WindowProbe.java"
+if [ -f "$RECORDER_JAR" ]; then
+    javac -encoding UTF-8 -cp "$RECORDER_JAR" -d "$PROBE_DIR" "$PROBE_DIR/EncoderProbe.java"
+fi
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# 运行 RUNS 次给出的命令，输出耗时中位数；任何一次失败时输出 failed
+median_ms() {
+    local times=() start
+    for _ in $(seq "$RUNS"); do
+        start=$(now_ms)
+        if ! "$@" > /dev/null 2>&1; then
+            echo "failed"
+            return
+        fi
+        times+=($(( $(now_ms) - start )))
+    done
+    printf '%s\n' "${times[@]}" | sort -n | sed -n "$(( (RUNS + 1) / 2 ))p"
+}
+
+cold_encoder() {
+    local cache
+    cache=$(mktemp -d)
+    java -Dorg.bytedeco.javacpp.cachedir="$cache" -cp "$RECORDER_JAR:$PROBE_DIR" EncoderProbe
+    local status=$?
+    rm -rf "$cache"
+    return $status
+}
+
+printf '%-40s %10s %12s\n' "jar" "size (KB)" "window (ms)"
+for entry in "${JARS[@]}"; do
+    read -r jar main args <<< "$entry"
+    if [ ! -f "$jar" ]; then
+        printf '%-40s %10s\n' "$jar" "missing"
+        continue
+    fi
+    size=$(( $(wc -c < "$jar") / 1024 ))
+    if [ -n "${DISPLAY:-}" ]; then
+        # shellcheck disable=SC2086
+        window=$(median_ms java -DsingleInstance=false -cp "$jar:$PROBE_DIR" WindowProbe "$main" $args)
+    else
+        window="no display"
+    fi
+    printf '%-40s %10s %12s\n' "$jar" "$size" "$window"
+done
+
+if [ -f "$RECORDER_JAR" ]; then
+    # 先运行一次，把原生库解压到默认缓存目录
+    java -cp "$RECORDER_JAR:$PROBE_DIR" EncoderProbe > /dev/null 2>&1
+    warm=$(median_ms java -cp "$RECORDER_JAR:$PROBE_DIR" EncoderProbe)
+    cold=$(median_ms cold_encoder)
+    echo
+    printf '%-40s %12s %12s\n' "first H.264 encoder start" "warm (ms)" "cold (ms)"
+    printf '%-40s %12s %12s\n' "$RECORDER_JAR" "$warm" "$cold"
+fi